@@ -20,6 +20,8 @@
 package org.apache.myfaces.extensions.scripting.cdi.core;
 
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.RefreshBeginEvent;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.TaintedEvent;
 import org.apache.myfaces.extensions.scripting.jsf.startup.StartupServletContextPluginChainLoaderBase;
 import org.apache.webbeans.config.OWBLogConst;
 import org.apache.webbeans.corespi.scanner.AbstractMetaDataDiscovery;
@@ -72,8 +74,12 @@ public class ExtScriptScannerService extends AbstractMetaDataDiscovery
             if (servletContext.getAttribute(RELOADING_LISTENER) == null)
             {
                 StartupServletContextPluginChainLoaderBase.startup(servletContext);
-                servletContext.setAttribute(RELOADING_LISTENER, new ReloadingListener());
-                WeavingContext.getInstance().addListener((ReloadingListener) servletContext.getAttribute(RELOADING_LISTENER));
+                ReloadingListener reloadingListener = new ReloadingListener();
+                servletContext.setAttribute(RELOADING_LISTENER, reloadingListener);
+                //the taints only set a flag, the container restart happens on the request thread,
+                //the flag has to be set before a request can see the new classes, hence synchronously
+                WeavingContext.getInstance().addListener(TaintedEvent.class, reloadingListener, false);
+                WeavingContext.getInstance().addListener(RefreshBeginEvent.class, reloadingListener, false);
             }
         }
         catch (IOException e)
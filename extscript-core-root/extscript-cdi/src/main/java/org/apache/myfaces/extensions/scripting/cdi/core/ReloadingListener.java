@@ -40,7 +40,7 @@ import javax.servlet.http.HttpServletRequest;
  */
 public class ReloadingListener implements WeavingEventListener
 {
-    boolean _tainted = false;
+    volatile boolean _tainted = false;
     ServletContext context;
 
     @Override
@@ -68,6 +68,30 @@ public class Configuration
 
     String _initialCompile;
 
+    /**
+     * the monitor mode, either event driven over the file system watch service
+     * or polling with a full scan every taint interval
+     */
+    volatile String _monitorMode = MONITOR_MODE_EVENT;
+
+    /**
+     * if set only the changed classes and their dependents are recompiled
+     * after the initial full compile
+     */
+    volatile boolean _incrementalCompile = true;
+
+    /**
+     * the java classes are kept in memory, if set they are
+     * additionally written asynchronously into the compile target
+     */
+    volatile boolean _writeClassesToDisk = false;
+
+    /**
+     * stable directory for the persistent compile cache,
+     * null if no cache should be used
+     */
+    volatile String _compileCacheDir = null;
+
     WeakReference<ServletContext> _contextWeakReference = null;
 
     /**
@@ -134,6 +158,30 @@ public class Configuration
         _resourceDirs.addAll(Arrays.asList(resourcePath.split("\\,")));
 
         _initialCompile = context.getInitParameter(INIT_PARAM_INITIAL_COMPILE);
+
+        String monitorMode = context.getInitParameter(INIT_PARAM_MONITOR_MODE);
+        if (monitorMode != null && !monitorMode.trim().equals(""))
+        {
+            _monitorMode = monitorMode.trim().toLowerCase();
+        }
+
+        String incrementalCompile = context.getInitParameter(INIT_PARAM_INCREMENTAL_COMPILE);
+        if (incrementalCompile != null && !incrementalCompile.trim().equals(""))
+        {
+            _incrementalCompile = Boolean.valueOf(incrementalCompile.trim());
+        }
+
+        String writeClassesToDisk = context.getInitParameter(INIT_PARAM_WRITE_CLASSES_TO_DISK);
+        if (writeClassesToDisk != null && !writeClassesToDisk.trim().equals(""))
+        {
+            _writeClassesToDisk = Boolean.valueOf(writeClassesToDisk.trim());
+        }
+
+        String compileCacheDir = context.getInitParameter(INIT_PARAM_COMPILE_CACHE_DIR);
+        if (compileCacheDir != null && !compileCacheDir.trim().equals(""))
+        {
+            _compileCacheDir = compileCacheDir.trim();
+        }
         //_additionalClassPath = context.getInitParameter(INIT_PARAM_SCRIPTING_ADDITIONAL_CLASSPATH);
 
         for (ScriptingEngine engine : FactoryEngines.getInstance().getEngines())
@@ -326,6 +374,54 @@ public class Configuration
         _initialCompile = initialCompile;
     }
 
+    public String getMonitorMode()
+    {
+        return _monitorMode;
+    }
+
+    public void setMonitorMode(String monitorMode)
+    {
+        _monitorMode = monitorMode;
+    }
+
+    /**
+     * @return true if the file monitor should run event driven over the watch service
+     */
+    public boolean isEventMonitoring()
+    {
+        return !MONITOR_MODE_POLLING.equals(_monitorMode);
+    }
+
+    public boolean isIncrementalCompile()
+    {
+        return _incrementalCompile;
+    }
+
+    public void setIncrementalCompile(boolean incrementalCompile)
+    {
+        _incrementalCompile = incrementalCompile;
+    }
+
+    public boolean isWriteClassesToDisk()
+    {
+        return _writeClassesToDisk;
+    }
+
+    public void setWriteClassesToDisk(boolean writeClassesToDisk)
+    {
+        _writeClassesToDisk = writeClassesToDisk;
+    }
+
+    public String getCompileCacheDir()
+    {
+        return _compileCacheDir;
+    }
+
+    public void setCompileCacheDir(String compileCacheDir)
+    {
+        _compileCacheDir = compileCacheDir;
+    }
+
     public File getCompileTarget()
     {
         return _compileTarget;
@@ -335,6 +431,17 @@ public class Configuration
         return new File(_compileTarget.getAbsolutePath()+appendix);
     }
 
+    /**
+     * the compilers write into this staging area, the classes are moved
+     * into the compile target once the compile cycle is done
+     *
+     * @return the staging dir for the current compile target
+     */
+    public File getStagingTarget()
+    {
+        return getCompileTarget("_staging");
+    }
+
     public void setCompileTarget(File compileTarget)
     {
         _compileTarget = compileTarget;
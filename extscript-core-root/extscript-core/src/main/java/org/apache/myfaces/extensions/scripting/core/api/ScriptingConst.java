@@ -46,6 +46,10 @@ public class ScriptingConst
 
     public static final String INIT_PARAM_CUSTOM_JAVA_LOADER_PATHS = "org.apache.myfaces.extensions.scripting.java.LOADER_PATHS";
     public static final String INIT_PARAM_INITIAL_COMPILE="org.apache.myfaces.extensions.scripting.INITIAL_COMPILE_AND_SCAN";
+    public static final String INIT_PARAM_MONITOR_MODE = "org.apache.myfaces.extensions.scripting.MONITOR_MODE";
+    public static final String INIT_PARAM_INCREMENTAL_COMPILE = "org.apache.myfaces.extensions.scripting.INCREMENTAL_COMPILE";
+    public static final String INIT_PARAM_COMPILE_CACHE_DIR = "org.apache.myfaces.extensions.scripting.COMPILE_CACHE_DIR";
+    public static final String INIT_PARAM_WRITE_CLASSES_TO_DISK = "org.apache.myfaces.extensions.scripting.WRITE_CLASSES_TO_DISK";
     public static final String INIT_PARAM_MYFACES_PLUGIN = "org.apache.myfaces.FACES_INIT_PLUGINS";
 
     public static final String EXT_VAL_MARKER="org.apache.myfaces.extensions.validator";
@@ -57,6 +61,10 @@ public class ScriptingConst
 
     public static final int TAINT_INTERVAL = 2000;
 
+    /*monitor modes, event uses the nio watch service, polling the classical full scan*/
+    public static final String MONITOR_MODE_EVENT = "event";
+    public static final String MONITOR_MODE_POLLING = "polling";
+
     public static final int ENGINE_TYPE_JSF_ALL = -2;
     public static final int ENGINE_TYPE_JSF_NO_ENGINE = -1;
     public static final int ENGINE_TYPE_JSF_GROOVY = 0;
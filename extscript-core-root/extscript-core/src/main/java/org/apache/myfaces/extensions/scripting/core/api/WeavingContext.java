@@ -20,37 +20,49 @@
 package org.apache.myfaces.extensions.scripting.core.api;
 
 import org.apache.myfaces.extensions.scripting.core.api.eventhandling.WeavingEvent;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.WeavingEventBus;
 import org.apache.myfaces.extensions.scripting.core.api.eventhandling.WeavingEventListener;
 import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.BeginCompiling;
 import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.EndCompiling;
 import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
+import org.apache.myfaces.extensions.scripting.core.common.util.FileUtils;
 import org.apache.myfaces.extensions.scripting.core.common.util.ReflectUtil;
+import org.apache.myfaces.extensions.scripting.core.engine.AnnotationIndex;
+import org.apache.myfaces.extensions.scripting.core.engine.CompilePipeline;
 import org.apache.myfaces.extensions.scripting.core.engine.FactoryEngines;
 import org.apache.myfaces.extensions.scripting.core.engine.ThrowAwayClassloader;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ClassScanner;
 import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationResult;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
+import org.apache.myfaces.extensions.scripting.core.engine.compiler.CompiledClassStore;
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+import org.apache.myfaces.extensions.scripting.core.monitor.ResourcePathCache;
+import org.apache.myfaces.extensions.scripting.core.monitor.TaintLog;
 import org.apache.myfaces.extensions.scripting.core.monitor.WatchedResource;
 import org.apache.myfaces.extensions.scripting.core.reloading.GlobalReloadingStrategy;
 import org.apache.myfaces.extensions.scripting.core.reloading.MethodLevelReloadingHandler;
+import org.apache.myfaces.extensions.scripting.core.reloading.ReloadingProxyGenerator;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -65,9 +77,36 @@ public class WeavingContext
     static final Logger log = Logger.getLogger(WeavingContext.class.getName());
 
     /**
-     * lock var which can be used for recompilation
+     * lock var which serializes the compile cycles (startup and monitor daemon)
+     * note, requests do not synchronize on it anymore, they only pass the swap gate
      */
     public AtomicBoolean recompileLock = new AtomicBoolean(false);
+
+    /**
+     * gate between the request threads and the compile cycle,
+     * requests pass the shared side, only the swap of the newly
+     * compiled classes takes the exclusive side, so that the
+     * compile itself runs while the traffic keeps flowing
+     */
+    private final ReentrantReadWriteLock _swapGate = new ReentrantReadWriteLock();
+
+    /**
+     * the engines which have been compiled in the current compile cycle
+     */
+    private volatile Set<Integer> _compiledEngines = Collections.emptySet();
+    /**
+     * the in memory store for the compiled java classes
+     */
+    private final CompiledClassStore _classStore = new CompiledClassStore();
+    /**
+     * compiles the engines of a compile cycle
+     */
+    private final CompilePipeline _compilePipeline = new CompilePipeline();
+
+    /**
+     * the aggregated compilation result of the last compile cycle
+     */
+    private volatile CompilationResult _compilationResult = null;
     /**
      * configuration which stores all external configuration entries
      */
@@ -88,6 +127,23 @@ public class WeavingContext
      */
     ClassScanner _annotationScanner = null;
 
+    /**
+     * the jsf annotations of the dynamic classes, maintained by the dependency scan
+     */
+    private final AnnotationIndex _annotationIndex = new AnnotationIndex();
+
+    /**
+     * the resolved resource files, invalidated by the monitor
+     */
+    private final ResourcePathCache _resourcePathCache = new ResourcePathCache();
+
+    /**
+     * pool for the parallel dependency scans of all engines,
+     * created on demand and stopped together with the context
+     */
+    private ForkJoinPool _scanPool = null;
+    private boolean _shutdown = false;
+
     /**
      * true only if the startup has performed without errors
      */
@@ -98,7 +154,13 @@ public class WeavingContext
      */
     ConcurrentHashMap<String, Long> lifecycleRegistry = new ConcurrentHashMap<String, Long>();
 
-    WeakHashMap<WeavingEventListener, String> _listeners = new WeakHashMap<WeavingEventListener, String>();
+    /**
+     * class name to watched resource over all engines, kept current by the engines
+     */
+    final ConcurrentHashMap<String, ClassResource> _resourceIndex = new ConcurrentHashMap<String, ClassResource>();
+    final Map<String, ClassResource> _resourceIndexView = Collections.unmodifiableMap(_resourceIndex);
+
+    final WeavingEventBus _eventBus = new WeavingEventBus();
 
 
     /**
@@ -112,7 +174,7 @@ public class WeavingContext
      * two dimensional &lt;class, taint&gt; to a three dimensional &lt;class, taint, time&gt;
      * view of things
      */
-    private List<TaintingHistoryEntry> _taintLog = Collections.synchronizedList(new LinkedList<TaintingHistoryEntry>());
+    private final TaintLog _taintLog = new TaintLog(TaintLog.DEFAULT_CAPACITY, TAINT_HISTORY_TIMEOUT);
 
     /**
      * compilation results holder for the compiler listeners (components etc...)
@@ -120,50 +182,47 @@ public class WeavingContext
     private static final Map<Integer, CompilationResult> _compilationResults = new ConcurrentHashMap<Integer, CompilationResult>();
 
     /**
-     * we keep a 10 minutes timeout period to keep the performance in place
+     * global reload generation, bumped at the end of every compile cycle,
+     * the proxies can skip their reload work as long as it is unchanged
      */
-    private final long TAINT_HISTORY_TIMEOUT = 10 * 60 * 1000;
+    private final AtomicLong _reloadGeneration = new AtomicLong(0);
 
     /**
-     * internal class used by our own history log
+     * the taint sequence all classes have been compiled and published for,
+     * taints after it still may refer to old classes
      */
-    static class TaintingHistoryEntry
-    {
-        long _timestamp;
-        ClassResource _data;
+    private volatile long _publishedTaintSequence = 0;
 
-        public TaintingHistoryEntry(ClassResource data)
-        {
-            _data = data;
-            _timestamp = System.currentTimeMillis();
-        }
-
-        public long getTimestamp()
-        {
-            return _timestamp;
-        }
+    /**
+     * we keep a 10 minutes timeout period to keep the performance in place
+     */
+    private static final long TAINT_HISTORY_TIMEOUT = 10 * 60 * 1000;
 
-        public ClassResource getData()
-        {
-            return _data;
-        }
+    public void addListener(WeavingEventListener listener) {
+        _eventBus.subscribe(listener);
     }
 
-    
-    public void addListener(WeavingEventListener listener) {
-        if(!_listeners.containsKey(listener)) {
-            _listeners.put(listener,"");
-        }
+    /**
+     * subscribes a listener to one event type only
+     *
+     * @param eventType the event type the listener is interested in
+     * @param listener  the listener
+     * @param async     true if the listener should be called asynchronously instead of on the sending thread
+     */
+    public void addListener(Class<? extends WeavingEvent> eventType, WeavingEventListener listener, boolean async) {
+        _eventBus.subscribe(eventType, listener, async);
     }
     
     public void removeListener(WeavingEventListener listener) {
-        _listeners.remove(listener);
+        _eventBus.unsubscribe(listener);
     }
     
     public void sendWeavingEvent(WeavingEvent evt) {
-        for(WeavingEventListener listener: _listeners.keySet()) {
-            listener.onEvent(evt);
-        }
+        _eventBus.send(evt);
+    }
+
+    public WeavingEventBus getEventBus() {
+        return _eventBus;
     }
     
     public void initEngines() throws IOException
@@ -222,20 +281,11 @@ public class WeavingContext
     }
 
     /**
-     * @return a map of all watched resources over all engines
+     * @return a read only map of all watched resources over all engines
      */
     public Map<String, ClassResource> getAllWatchedResources()
     {
-        Map<String, ClassResource> ret = new HashMap<String, ClassResource>();
-        for (ScriptingEngine engine : getEngines())
-        {
-            Map<String, ClassResource> watchedResourceMap = engine.getWatchedResources();
-            for (Map.Entry<String, ClassResource> entry : watchedResourceMap.entrySet())
-            {
-                ret.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return ret;
+        return _resourceIndexView;
     }
 
     /**
@@ -244,37 +294,72 @@ public class WeavingContext
      */
     public ClassResource getWatchedResource(String key)
     {
-        for (ScriptingEngine engine : getEngines())
+        return _resourceIndex.get(key);
+    }
+
+    /**
+     * adds a resource to the global resource index, called by the engines
+     * if they start to watch a resource
+     * <p>&nbsp;</p>
+     * If several engines watch the same class, the engine coming first
+     * in the engine order wins, like in the class detection
+     *
+     * @param resource the newly watched resource
+     */
+    public void registerResource(ClassResource resource)
+    {
+        String identifier = resource.getIdentifier();
+        synchronized (_resourceIndex)
         {
-            if (!engine.getWatchedResources().containsKey(key)) continue;
-            return engine.getWatchedResources().get(key);
+            ClassResource existing = _resourceIndex.get(identifier);
+            if (existing == null || enginePosition(resource.getScriptingEngine()) < enginePosition(existing
+                    .getScriptingEngine()))
+            {
+                _resourceIndex.put(identifier, resource);
+            }
         }
-        return null;
     }
 
-    public Collection<ClassResource> getTaintedClasses(int scriptingEngine) {
-            Map<String, ClassResource> watchedResources = getEngine(scriptingEngine).getWatchedResources();
-            List<ClassResource> res = new LinkedList<ClassResource>();
-            for(Map.Entry<String, ClassResource> entry: watchedResources.entrySet()) {
-                if(entry.getValue().isTainted()) {
-                    res.add(entry.getValue());
+    /**
+     * removes a resource from the global resource index, called by the
+     * engines if they stop watching a resource
+     *
+     * @param resource the resource not watched anymore
+     */
+    public void unregisterResource(ClassResource resource)
+    {
+        String identifier = resource.getIdentifier();
+        synchronized (_resourceIndex)
+        {
+            if (!_resourceIndex.remove(identifier, resource)) return;
+            //another engine still might watch the class
+            for (ScriptingEngine engine : getEngines())
+            {
+                ClassResource other = engine.getWatchedResources().get(identifier);
+                if (other != null)
+                {
+                    _resourceIndex.put(identifier, other);
+                    return;
                 }
             }
-            return res;
         }
+    }
 
-
-    public Collection<ClassResource> getTaintedClasses() {
-        Map<String, ClassResource> watchedResources = getAllWatchedResources();
-        List<ClassResource> res = new LinkedList<ClassResource>();
-        for(Map.Entry<String, ClassResource> entry: watchedResources.entrySet()) {
-            if(entry.getValue().isTainted()) {
-                res.add(entry.getValue());
-            }
+    private int enginePosition(int engineType)
+    {
+        int pos = 0;
+        for (ScriptingEngine engine : getEngines())
+        {
+            if (engine.getEngineType() == engineType) return pos;
+            pos++;
         }
-        return res;
+        return pos;
     }
-    
+
+    public Collection<ClassResource> getTaintedClasses(int scriptingEngine) {
+        return getEngine(scriptingEngine).getTaintedResources();
+    }
+
     /**
      * checks if a resource idenified by key is tainted
      *
@@ -325,37 +410,173 @@ public class WeavingContext
 
     }
 
+    /**
+     * @return the index of the jsf annotations of the dynamic classes
+     */
+    public AnnotationIndex getAnnotationIndex()
+    {
+        return _annotationIndex;
+    }
+
+    /**
+     * @return the cache of the files resolved from the resource dirs
+     */
+    public ResourcePathCache getResourcePathCache()
+    {
+        return _resourcePathCache;
+    }
+
     public void annotationScan()
     {
         if (_annotationScanner != null)
             _annotationScanner.scanPaths();
     }
 
+    /**
+     * prepares the annotation registrations of the last compile cycle,
+     * the request threads later only apply the prepared result
+     */
+    public void prepareAnnotationScan()
+    {
+        if (_annotationScanner != null)
+            _annotationScanner.prepareScan();
+    }
+
     public boolean compile()
     {
-        boolean compile = false;
+        List<ScriptingEngine> toCompile = new ArrayList<ScriptingEngine>();
+        Set<Integer> compiledEngines = new HashSet<Integer>();
         for (ScriptingEngine engine : getEngines())
         {
             if (!engine.needsRecompile()) continue;
             sendWeavingEvent(new BeginCompiling());
-
-            compile = true;
+            toCompile.add(engine);
+            compiledEngines.add(engine.getEngineType());
             log.info("[EXT-SCRIPTING] compiling " + engine.getEngineTypeAsStr() + " files");
-            CompilationResult result = engine.compile();
+        }
+        if (toCompile.isEmpty())
+        {
+            _compiledEngines = compiledEngines;
+            return false;
+        }
+        //independent engines are compiled in parallel
+        Map<Integer, CompilationResult> results = _compilePipeline.compile(toCompile);
+        for (ScriptingEngine engine : toCompile)
+        {
+            CompilationResult result = results.get(engine.getEngineType());
             if(result != null) {
-                WeavingContext.getInstance().setCompilationResult(engine.getEngineType(), result);
+                setCompilationResult(engine.getEngineType(), result);
             }
             sendWeavingEvent(new EndCompiling());
             log.info("[EXT-SCRIPTING] compiling " + engine.getEngineTypeAsStr() + " files done");
         }
-        return compile;
+        //engines not compiled in this cycle keep their last result
+        _compilationResult = CompilePipeline.aggregate(_compilationResults.values());
+        _compiledEngines = compiledEngines;
+        return true;
+    }
+
+    /**
+     * moves the classes compiled in the current cycle from the
+     * staging area into the compile target, this has to happen
+     * under the exclusive side of the swap gate
+     */
+    public void publishCompiledClasses()
+    {
+        File staging = configuration.getStagingTarget();
+        try
+        {
+            int moved = FileUtils.moveFiles(staging, configuration.getCompileTarget());
+            log.log(Level.FINE, "[EXT-SCRIPTING] published {0} compiled files", moved);
+            int published = _classStore.publish(configuration.isWriteClassesToDisk() ?
+                    configuration.getCompileTarget() : null);
+            log.log(Level.FINE, "[EXT-SCRIPTING] published {0} in memory classes", published);
+        }
+        catch (IOException e)
+        {
+            log.log(Level.SEVERE, "[EXT-SCRIPTING] publishing the compiled classes failed", e);
+        }
+    }
+
+    /**
+     * @return the in memory store holding the compiled java classes
+     */
+    public CompiledClassStore getClassStore()
+    {
+        return _classStore;
+    }
+
+    /**
+     * the pool is recreated if the requested parallelism changes,
+     * for instance if the container has adjusted the available cores
+     *
+     * @param parallelism the number of scan workers
+     * @return the scan pool, null after the context has been shut down
+     */
+    public synchronized ForkJoinPool getScanPool(int parallelism)
+    {
+        if (_shutdown) return null;
+        if (_scanPool != null && _scanPool.getParallelism() != parallelism)
+        {
+            //running scans are finished by the old pool
+            _scanPool.shutdown();
+            _scanPool = null;
+        }
+        if (_scanPool == null)
+        {
+            _scanPool = new ForkJoinPool(parallelism);
+        }
+        return _scanPool;
+    }
+
+    /**
+     * stops the worker threads of the context on context destroy,
+     * otherwise they keep the webapp classloader alive on a redeploy,
+     * work which still comes in afterwards runs on the calling thread
+     */
+    public void shutdown()
+    {
+        synchronized (this)
+        {
+            _shutdown = true;
+            if (_scanPool != null)
+            {
+                _scanPool.shutdownNow();
+                _scanPool = null;
+            }
+        }
+        _compilePipeline.shutdown();
+        _classStore.shutdown();
+        _eventBus.shutdown();
+    }
+
+    /**
+     * @return the exclusive side of the swap gate, held by the monitor
+     *         while the newly compiled classes are swapped in
+     */
+    public Lock getSwapLock()
+    {
+        return _swapGate.writeLock();
+    }
+
+    /**
+     * entry gate for the request threads, returns immediately
+     * unless a swap of compiled classes is in progress
+     */
+    public void awaitSwap()
+    {
+        Lock gate = _swapGate.readLock();
+        gate.lock();
+        gate.unlock();
     }
 
     public void scanDependencies()
     {
         for (ScriptingEngine engine : getEngines())
         {
-            if (engine.isTainted())
+            //requests might already have reloaded and untainted the classes
+            //hence we rely on the engines compiled in this cycle
+            if (_compiledEngines.contains(engine.getEngineType()) || engine.isTainted())
             {
                 log.info("[EXT-SCRIPTING] scanning " + engine.getEngineTypeAsStr() + " dependencies");
                 engine.scanDependencies();
@@ -374,13 +595,7 @@ public class WeavingContext
 
     public WatchedResource getResource(String className)
     {
-        WatchedResource ret = null;
-        for (ScriptingEngine engine : getEngines())
-        {
-            ret = engine.getWatchedResources().get(className);
-            if (ret != null) return ret;
-        }
-        return ret;
+        return _resourceIndex.get(className);
     }
 
     public boolean isDynamic(Class clazz)
@@ -394,9 +609,9 @@ public class WeavingContext
      * which does reloading of the internal class
      * on method level
      * <p>&nbsp;</p>
-     * this works only on classes which implement contractual interfaces
-     * it cannot work on things like the navigation handler
-     * which rely on base classes
+     * the proxy class is generated, hence this also works on things
+     * like the navigation handler which rely on base classes,
+     * as long as they provide an accessible no argument constructor
      *
      * @param o            the source object to be proxied
      * @param theInterface the proxying interface
@@ -408,9 +623,7 @@ public class WeavingContext
         //if (!isScriptingEnabled()) {
         //    return o;
         //}
-        return Proxy.newProxyInstance(o.getClass().getClassLoader(),
-                new Class[]{theInterface},
-                new MethodLevelReloadingHandler(o, artifactType));
+        return createReloadingProxy(o, theInterface, artifactType);
     }
 
     public Class forName(String name) {
@@ -458,6 +671,16 @@ public class WeavingContext
         //if (!isScriptingEnabled()) {
         //    return o;
         //}
+        return createReloadingProxy(o, theInterface, artifactType);
+    }
+
+    private static Object createReloadingProxy(Object o, Class theInterface, int artifactType)
+    {
+        if (ReloadingProxyGenerator.isProxyable(theInterface))
+        {
+            return ReloadingProxyGenerator.newProxy(o, theInterface, artifactType);
+        }
+        //non public interfaces are left to the jdk proxies
         return Proxy.newProxyInstance(o.getClass().getClassLoader(),
                 new Class[]{theInterface},
                 new MethodLevelReloadingHandler(o, artifactType));
@@ -541,6 +764,46 @@ public class WeavingContext
         return lastTainted;
     }
 
+    /**
+     * @return the current reload generation, it only changes once a compile cycle has ended
+     */
+    public long getReloadGeneration()
+    {
+        return _reloadGeneration.get();
+    }
+
+    /**
+     * marks the end of a compile cycle, all proxies reweave
+     * their delegates on their next access
+     *
+     * @return the new reload generation
+     */
+    public long nextReloadGeneration()
+    {
+        _publishedTaintSequence = _taintLog.getLastSequence();
+        lifecycleRegistry.put("LIFECYCLE_LAST_PUBLISH", System.currentTimeMillis());
+        return _reloadGeneration.incrementAndGet();
+    }
+
+    /**
+     * @return the taint sequence covered by the last finished compile cycle,
+     *         0 if no compile cycle has ended yet
+     */
+    public long getPublishedTaintSequence()
+    {
+        return _publishedTaintSequence;
+    }
+
+    /**
+     * @return the time value of the end of the last compile cycle, -1 if none has ended yet
+     */
+    public long getLastPublish()
+    {
+        Long lastPublish = lifecycleRegistry.get("LIFECYCLE_LAST_PUBLISH");
+        lastPublish = (lastPublish != null) ? lastPublish : -1L;
+        return lastPublish;
+    }
+
     //------------------------------ tainting history entries -----------------------
 
     /**
@@ -549,33 +812,41 @@ public class WeavingContext
      * from a given point in time
      *
      * @param data the tainting data to be added
+     * @return the sequence number of the new entry
      */
-    public void addTaintLogEntry(ClassResource data)
+    public long addTaintLogEntry(ClassResource data)
     {
-        _taintLog.add(new TaintingHistoryEntry(data));
+        return _taintLog.add(data);
     }
 
     /**
-     * garbage collects our tainting data
-     * and removes all entries which are not
-     * present anymore due to timeout
-     * this gc code is called asynchronously
-     * from our tainting thread to keep the
-     * performance intact
+     * @return the sequence number of the last taint, 0 if nothing has been tainted yet
      */
-    public void gcTaintLog()
+    public long getTaintSequence()
     {
-        long timeoutTimestamp = System.currentTimeMillis() - TAINT_HISTORY_TIMEOUT;
-        Iterator<TaintingHistoryEntry> it = _taintLog.iterator();
+        return _taintLog.getLastSequence();
+    }
 
-        while (it.hasNext())
-        {
-            TaintingHistoryEntry entry = it.next();
-            if (entry.getTimestamp() < timeoutTimestamp)
-            {
-                it.remove();
-            }
-        }
+    /**
+     * checks if the taint history still holds all entries after the given sequence number
+     *
+     * @param sequence a sequence number returned by {@link #getTaintSequence()}
+     * @return false if entries have been dropped, the caller has to treat everything as tainted then
+     */
+    public boolean isTaintHistoryComplete(long sequence)
+    {
+        return _taintLog.isComplete(sequence);
+    }
+
+    /**
+     * returns the resources tainted after the given sequence number
+     *
+     * @param sequence a sequence number returned by {@link #getTaintSequence()}
+     * @return the tainted resources in the order of their taints
+     */
+    public Collection<ClassResource> getTaintHistorySince(long sequence)
+    {
+        return _taintLog.getSince(sequence);
     }
 
     /**
@@ -586,14 +857,7 @@ public class WeavingContext
      */
     public Collection<ClassResource> getLastTainted(int noOfEntries)
     {
-        Iterator<TaintingHistoryEntry> it = _taintLog.subList(Math.max(_taintLog.size() - noOfEntries, 0), _taintLog.size()).iterator();
-        List<ClassResource> retVal = new LinkedList<ClassResource>();
-        while (it.hasNext())
-        {
-            TaintingHistoryEntry entry = it.next();
-            retVal.add(entry.getData());
-        }
-        return retVal;
+        return _taintLog.getLast(noOfEntries);
     }
 
     /**
@@ -604,18 +868,7 @@ public class WeavingContext
      */
     public Collection<ClassResource> getTaintHistory(long timestamp)
     {
-        List<ClassResource> retVal = new LinkedList<ClassResource>();
-        Iterator<TaintingHistoryEntry> it = _taintLog.iterator();
-
-        while (it.hasNext())
-        {
-            TaintingHistoryEntry entry = it.next();
-            if (entry.getTimestamp() >= timestamp)
-            {
-                retVal.add(entry.getData());
-            }
-        }
-        return retVal;
+        return _taintLog.getSinceTime(timestamp);
     }
 
     /**
@@ -627,21 +880,9 @@ public class WeavingContext
     public Set<String> getTaintHistoryClasses(long timestamp)
     {
         Set<String> retVal = new HashSet<String>();
-        Iterator<TaintingHistoryEntry> it = _taintLog.iterator();
-
-        while (it.hasNext())
+        for (ClassResource entry : _taintLog.getSinceTime(timestamp))
         {
-            TaintingHistoryEntry entry = it.next();
-            if (entry.getTimestamp() >= timestamp)
-            {
-                if (entry.getData() instanceof ClassResource)
-                {
-                    retVal.add(((ClassResource) entry.getData()).getAClass().getName());
-                } else
-                {
-                    retVal.add(entry.getData().getFile().getAbsolutePath());
-                }
-            }
+            retVal.add(entry.getIdentifier());
         }
         return retVal;
     }
@@ -681,6 +922,14 @@ public class WeavingContext
         return _compilationResults.get(scriptingEngine);
     }
 
+    /**
+     * @return the aggregated result of the last compile of every engine
+     */
+    public CompilationResult getCompilationResult()
+    {
+        return _compilationResult;
+    }
+
     public void setCompilationResult(Integer scriptingEngine, CompilationResult result)
     {
         _compilationResults.put(scriptingEngine, result);
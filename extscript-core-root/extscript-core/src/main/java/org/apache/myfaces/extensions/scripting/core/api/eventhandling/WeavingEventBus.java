@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.api.eventhandling;
+
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.TaintedEvent;
+import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * dispatches the weaving events to the listeners
+ * <p>&nbsp;</p>
+ * Listeners subscribe either to all events or to one event type,
+ * they are held weakly like before. Synchronous listeners are called
+ * on the sending thread, asynchronous ones on a single daemon thread
+ * in the order the events have been sent, so a slow listener does not
+ * hold up the monitor cycle.
+ * <p>&nbsp;</p>
+ * Taints are not sent one by one, they are queued and sent as one
+ * {@link TaintedEvent} per cycle by {@link #flushTainted()}.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class WeavingEventBus
+{
+    static final Logger _log = Logger.getLogger(WeavingEventBus.class.getName());
+
+    static final class Subscription
+    {
+        final Class<? extends WeavingEvent> _eventType;
+        final WeakReference<WeavingEventListener> _listener;
+        final boolean _async;
+
+        Subscription(Class<? extends WeavingEvent> eventType, WeavingEventListener listener, boolean async)
+        {
+            _eventType = eventType;
+            _listener = new WeakReference<WeavingEventListener>(listener);
+            _async = async;
+        }
+    }
+
+    final List<Subscription> _subscriptions = new CopyOnWriteArrayList<Subscription>();
+    final ConcurrentLinkedQueue<ClassResource> _pendingTaints = new ConcurrentLinkedQueue<ClassResource>();
+    volatile ExecutorService _dispatcher = null;
+    volatile boolean _shutdown = false;
+
+    /**
+     * subscribes a listener to all events, the listener is called synchronously
+     *
+     * @param listener the listener
+     */
+    public void subscribe(WeavingEventListener listener)
+    {
+        subscribe(WeavingEvent.class, listener, false);
+    }
+
+    /**
+     * subscribes a listener to one event type and its subtypes
+     *
+     * @param eventType the event type the listener is interested in
+     * @param listener  the listener
+     * @param async     true if the listener should be called on the dispatch thread
+     */
+    public void subscribe(Class<? extends WeavingEvent> eventType, WeavingEventListener listener, boolean async)
+    {
+        for (Subscription subscription : _subscriptions)
+        {
+            if (subscription._listener.get() == listener && subscription._eventType == eventType) return;
+        }
+        _subscriptions.add(new Subscription(eventType, listener, async));
+    }
+
+    /**
+     * removes all subscriptions of a listener
+     *
+     * @param listener the listener
+     */
+    public void unsubscribe(WeavingEventListener listener)
+    {
+        for (Subscription subscription : _subscriptions)
+        {
+            WeavingEventListener subscribed = subscription._listener.get();
+            if (subscribed == null || subscribed == listener)
+            {
+                _subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * sends an event to all listeners subscribed to its type
+     *
+     * @param evt the event
+     */
+    public void send(final WeavingEvent evt)
+    {
+        for (Subscription subscription : _subscriptions)
+        {
+            if (!subscription._eventType.isInstance(evt)) continue;
+            final WeavingEventListener listener = subscription._listener.get();
+            if (listener == null)
+            {
+                _subscriptions.remove(subscription);
+                continue;
+            }
+            if (!subscription._async)
+            {
+                listener.onEvent(evt);
+                continue;
+            }
+            Runnable dispatch = new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        listener.onEvent(evt);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        _log.log(Level.SEVERE, "[EXT-SCRIPTING] event listener failed", e);
+                    }
+                }
+            };
+            ExecutorService dispatcher = getDispatcher();
+            if (dispatcher == null)
+            {
+                dispatch.run();
+                continue;
+            }
+            try
+            {
+                dispatcher.execute(dispatch);
+            }
+            catch (RejectedExecutionException e)
+            {
+                //shut down in the meantime
+                dispatch.run();
+            }
+        }
+    }
+
+    /**
+     * queues a taint for the next batch
+     *
+     * @param resource the tainted resource
+     */
+    public void addTainted(ClassResource resource)
+    {
+        _pendingTaints.add(resource);
+    }
+
+    /**
+     * sends the taints queued since the last flush as one event
+     */
+    public void flushTainted()
+    {
+        if (_pendingTaints.isEmpty()) return;
+        List<ClassResource> tainted = new ArrayList<ClassResource>();
+        ClassResource resource;
+        while ((resource = _pendingTaints.poll()) != null)
+        {
+            tainted.add(resource);
+        }
+        send(new TaintedEvent(tainted));
+    }
+
+    /**
+     * stops the dispatch thread after the pending events,
+     * asynchronous listeners are called on the sending thread afterwards
+     */
+    public synchronized void shutdown()
+    {
+        _shutdown = true;
+        if (_dispatcher != null)
+        {
+            _dispatcher.shutdown();
+            _dispatcher = null;
+        }
+    }
+
+    private ExecutorService getDispatcher()
+    {
+        if (_dispatcher == null)
+        {
+            synchronized (this)
+            {
+                if (_dispatcher == null && !_shutdown)
+                {
+                    _dispatcher = Executors.newSingleThreadExecutor(new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread dispatcher = new Thread(runnable, "ExtScript event dispatcher");
+                            dispatcher.setDaemon(true);
+                            return dispatcher;
+                        }
+                    });
+                }
+            }
+        }
+        return _dispatcher;
+    }
+}
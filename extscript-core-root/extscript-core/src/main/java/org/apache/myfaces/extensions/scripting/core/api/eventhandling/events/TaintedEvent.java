@@ -22,16 +22,20 @@ package org.apache.myfaces.extensions.scripting.core.api.eventhandling.events;
 import org.apache.myfaces.extensions.scripting.core.api.eventhandling.WeavingEvent;
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * @author Werner Punz (latest modification by $Author$)
  * @version $Revision$ $Date$
  *
- * event which is fired if a class resource is tainted
+ * event which is fired if class resources are tainted,
+ * the taints of one monitor cycle are sent as one event
  */
 
 public class TaintedEvent  implements WeavingEvent
 {
-    ClassResource resource;
+    Collection<ClassResource> resources = Collections.emptyList();
 
     public TaintedEvent()
     {
@@ -39,16 +43,32 @@ public class TaintedEvent  implements WeavingEvent
 
     public TaintedEvent(ClassResource resource)
     {
-        this.resource = resource;
+        this.resources = Collections.singletonList(resource);
+    }
+
+    public TaintedEvent(Collection<ClassResource> resources)
+    {
+        this.resources = resources;
     }
 
+    /**
+     * @return the first tainted resource of the batch
+     */
     public ClassResource getResource()
     {
-        return resource;
+        return resources.isEmpty() ? null : resources.iterator().next();
     }
 
     public void setResource(ClassResource resource)
     {
-        this.resource = resource;
+        this.resources = Collections.singletonList(resource);
+    }
+
+    /**
+     * @return all resources tainted in the batch
+     */
+    public Collection<ClassResource> getResources()
+    {
+        return resources;
     }
 }
@@ -146,8 +146,10 @@ public class ClassLoaderUtils {
 
         ClassLoader classLoader = parent;
         // Walk up the hierachy of class loaders in order to determine the current classpath.
+        //the staging area holds the classes of the engines already compiled in the current cycle
         File target = WeavingContext.getInstance().getConfiguration().getCompileTarget();
         if (target != null) {
+            addFile(classpath, WeavingContext.getInstance().getConfiguration().getStagingTarget());
             addFile(classpath, target);
         }
 
@@ -19,6 +19,10 @@
 package org.apache.myfaces.extensions.scripting.core.common.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.List;
 
@@ -185,6 +189,38 @@ public class FileUtils {
         return strategy.getFoundFiles();
     }
 
+    /**
+     * moves all files from the source dir into the target dir keeping
+     * their relative paths, existing files are replaced atomically
+     * where the file system allows it, so that readers either see the old
+     * or the new file but never a partially written one
+     *
+     * @param sourceDir the directory to move the files from
+     * @param targetDir the directory receiving the files
+     * @return the number of files moved
+     * @throws IOException in case of a failing move
+     */
+    public static int moveFiles(File sourceDir, File targetDir) throws IOException {
+        if (!sourceDir.exists()) return 0;
+        FileStrategy strategy = new FileStrategy("*");
+        listFiles(sourceDir, strategy);
+        String sourceRoot = sourceDir.getAbsolutePath();
+        int moved = 0;
+        for (File sourceFile : strategy.getFoundFiles()) {
+            if (sourceFile.isDirectory()) continue;
+            File targetFile = new File(targetDir, sourceFile.getAbsolutePath().substring(sourceRoot.length()));
+            targetFile.getParentFile().mkdirs();
+            try {
+                Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved++;
+        }
+        return moved;
+    }
+
     /**
      * fetches the source paths from a given root directory in the format
      * &lt;path&gt;/&lt;appendix&gt;;...
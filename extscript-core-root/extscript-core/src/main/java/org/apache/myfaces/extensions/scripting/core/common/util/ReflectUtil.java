@@ -27,6 +27,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +41,28 @@ public class ReflectUtil
 
     static final Logger _logger = Logger.getLogger(ReflectUtil.class.getName());
 
+    /**
+     * the resolved method candidates per class and method name,
+     * the cache lives in the class itself and hence is dropped
+     * once a throw away class is unloaded
+     */
+    private static final ClassValue<ConcurrentHashMap<String, _MethodCandidates>> _methodCache =
+            new ClassValue<ConcurrentHashMap<String, _MethodCandidates>>()
+            {
+                @Override
+                protected ConcurrentHashMap<String, _MethodCandidates> computeValue(Class<?> type)
+                {
+                    return new ConcurrentHashMap<String, _MethodCandidates>();
+                }
+            };
+
+    private static final Method[] NO_METHODS = new Method[0];
+
+    /**
+     * shared marker for a failed lookup
+     */
+    private static final _MethodNotFound METHOD_NOT_FOUND = new _MethodNotFound();
+
     public static Object instantiate(String clazz, Object... varargs)
     {
         return instantiate(ClassUtils.forName(clazz), varargs);
@@ -112,16 +135,15 @@ public class ReflectUtil
     public static Object executeStaticMethod(Class obj, String methodName, Object... varargs)
     {
 
-        Collection<Method> methods = getMethods(obj, methodName, varargs.length);
+        _MethodCandidates candidates = getMethodCandidates(obj, methodName);
 
-        Object retVal = handleStaticMethod(obj, methodName, methods, varargs);
+        Object retVal = handleStaticMethod(obj, methodName, candidates.getDeclared(varargs.length), varargs);
         if (!methodNotFound(retVal))
         {
             return retVal;
         }
 
-        methods = getAllMethods(obj, methodName, varargs.length);
-        retVal = handleStaticMethod(obj, methodName, methods, varargs);
+        retVal = handleStaticMethod(obj, methodName, candidates.getAll(varargs.length), varargs);
         if (!methodNotFound(retVal))
         {
             return retVal;
@@ -233,7 +255,6 @@ public class ReflectUtil
     public static Object executeMethod(Object obj, String methodName, Object... varargs)
     {
 
-        Collection<Method> methods;
         //if we have an invocationHandler here we
         //can work over the generic invoke interface
         //That way we can cover more dynamic stuff
@@ -244,18 +265,17 @@ public class ReflectUtil
             InvocationHandler objToInvoke = (InvocationHandler) obj;
 
             Object realTarget = WeavingContext.getInstance().getDelegateFromProxy(objToInvoke);
+            _MethodCandidates candidates = getMethodCandidates(realTarget.getClass(), methodName);
 
             //first we try only the public because they are the most likely ones
             //to be accessed
-            methods = getMethods(realTarget.getClass(), methodName, varargs.length);
-            Object retVal = handleInvHandlerMethod(objToInvoke, methodName, methods, varargs);
+            Object retVal = handleInvHandlerMethod(objToInvoke, methodName, candidates.getDeclared(varargs.length), varargs);
             if (!methodNotFound(retVal))
             {
                 return retVal;
             }
             //if not we try all of them until we have a match
-            methods = getAllMethods(realTarget.getClass(), methodName, varargs.length);
-            retVal = handleInvHandlerMethod(objToInvoke, methodName, methods, varargs);
+            retVal = handleInvHandlerMethod(objToInvoke, methodName, candidates.getAll(varargs.length), varargs);
             if (!(methodNotFound(retVal)))
             {
                 return retVal;
@@ -264,20 +284,18 @@ public class ReflectUtil
             throw new RuntimeException("Method of :" + methodName + " from class " + obj.getClass().getName() + " not found");
         }
 
-        Class clazz = obj.getClass();
+        _MethodCandidates candidates = getMethodCandidates(obj.getClass(), methodName);
 
         //first we try only the public because they are the most likely ones
         //to be accessed
-        methods = getMethods(clazz, methodName, varargs.length);
-        Object retVal = handleObjMethod(obj, methodName, methods, varargs);
+        Object retVal = handleObjMethod(obj, methodName, candidates.getDeclared(varargs.length), varargs);
         if (!methodNotFound(retVal))
         {
             return retVal;
         }
 
         //if not we try all of them until we have a match
-        methods = getAllMethods(clazz, methodName, varargs.length);
-        retVal = handleObjMethod(obj, methodName, methods, varargs);
+        retVal = handleObjMethod(obj, methodName, candidates.getAll(varargs.length), varargs);
         if (!methodNotFound(retVal))
         {
             return retVal;
@@ -286,6 +304,93 @@ public class ReflectUtil
         throw new RuntimeException("Method of :" + methodName + " from class " + obj.getClass().getName() + " not found");
     }
 
+    /**
+     * fetches the method candidates of a given name from the method cache
+     *
+     * @param clazz      the class to be investigated
+     * @param methodName the method name
+     * @return the declared and inherited methods of the given name grouped by their number of parameters
+     */
+    private static _MethodCandidates getMethodCandidates(Class<?> clazz, String methodName)
+    {
+        ConcurrentHashMap<String, _MethodCandidates> classCache = _methodCache.get(clazz);
+        _MethodCandidates candidates = classCache.get(methodName);
+        if (candidates == null)
+        {
+            //a concurrent resolution yields the same result, hence no locking
+            candidates = new _MethodCandidates(clazz, methodName);
+            classCache.put(methodName, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * the methods of a given name of a class, grouped by their number
+     * of parameters, first only the declared ones then the ones
+     * of the entire class hierarchy in the order getAllMethods returns them
+     */
+    static class _MethodCandidates
+    {
+        final Method[][] _declared;
+        final Method[][] _all;
+
+        _MethodCandidates(Class<?> clazz, String methodName)
+        {
+            _declared = groupByArity(collect(clazz, methodName, false));
+            _all = groupByArity(collect(clazz, methodName, true));
+        }
+
+        Method[] getDeclared(int varargLength)
+        {
+            return (varargLength < _declared.length) ? _declared[varargLength] : NO_METHODS;
+        }
+
+        Method[] getAll(int varargLength)
+        {
+            return (varargLength < _all.length) ? _all[varargLength] : NO_METHODS;
+        }
+
+        private static ArrayList<Method> collect(Class<?> clazz, String methodName, boolean hierarchy)
+        {
+            ArrayList<Method> retVal = new ArrayList<Method>();
+            while (clazz != null)
+            {
+                for (Method m : clazz.getDeclaredMethods())
+                {
+                    if (m.getName().equals(methodName))
+                    {
+                        retVal.add(m);
+                    }
+                }
+                clazz = hierarchy ? clazz.getSuperclass() : null;
+            }
+            return retVal;
+        }
+
+        private static Method[][] groupByArity(ArrayList<Method> methods)
+        {
+            int maxArity = -1;
+            for (Method m : methods)
+            {
+                maxArity = Math.max(maxArity, m.getParameterTypes().length);
+            }
+            Method[][] retVal = new Method[maxArity + 1][];
+            for (int arity = 0; arity <= maxArity; arity++)
+            {
+                ArrayList<Method> group = new ArrayList<Method>();
+                for (Method m : methods)
+                {
+                    if (m.getParameterTypes().length == arity)
+                    {
+                        group.add(m);
+                    }
+                }
+                retVal[arity] = group.toArray(new Method[group.size()]);
+            }
+            return retVal;
+        }
+    }
+
     /**
      * special marker class which is a special return value indicating
      * that not method has been found which can be executed
@@ -316,7 +421,7 @@ public class ReflectUtil
      * @param varargs     the list of varargs to be passed to the method
      * @return the result of the invocation, or an object of type _MethodNotFound otherwise
      */
-    static private Object handleInvHandlerMethod(InvocationHandler objToInvoke, String methodName, Collection<Method> methods, Object... varargs)
+    static private Object handleInvHandlerMethod(InvocationHandler objToInvoke, String methodName, Method[] methods, Object... varargs)
     {
         for (Method m : methods)
         {
@@ -333,7 +438,7 @@ public class ReflectUtil
                 handleException(e);
             }
         }
-        return new _MethodNotFound();
+        return METHOD_NOT_FOUND;
     }
 
     /**
@@ -345,7 +450,7 @@ public class ReflectUtil
      * @param varargs     the list of varargs to be passed to the method
      * @return the result of the invocation, or an object of type _MethodNotFound otherwise
      */
-    static private Object handleObjMethod(Object objToInvoke, String methodName, Collection<Method> methods, Object... varargs)
+    static private Object handleObjMethod(Object objToInvoke, String methodName, Method[] methods, Object... varargs)
     {
         for (Method m : methods)
         {
@@ -362,7 +467,7 @@ public class ReflectUtil
                 handleException(e);
             }
         }
-        return new _MethodNotFound();
+        return METHOD_NOT_FOUND;
     }
 
     /**
@@ -374,7 +479,7 @@ public class ReflectUtil
      * @param varargs     the list of varargs to be passed to the method
      * @return the result of the invocation, or an object of type _MethodNotFound otherwise
      */
-    static private Object handleStaticMethod(Class objToInvoke, String methodName, Collection<Method> methods, Object... varargs)
+    static private Object handleStaticMethod(Class<?> objToInvoke, String methodName, Method[] methods, Object... varargs)
     {
         for (Method m : methods)
         {
@@ -391,7 +496,7 @@ public class ReflectUtil
                 handleException(e);
             }
         }
-        return new _MethodNotFound();
+        return METHOD_NOT_FOUND;
     }
 
     private static void handleException(Throwable e)
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.engine;
+
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassScanUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the jsf annotations of the dynamic classes
+ * <p>&nbsp;</p>
+ * The index is updated by the dependency scan on the monitor thread
+ * from the RuntimeVisibleAnnotations of the class files, no class is loaded for it.
+ * Every update records which classes have to be registered anew
+ * and which ones have lost their annotations and have to be purged,
+ * the annotation scanner on the request side only applies those changes.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class AnnotationIndex
+{
+    /**
+     * the annotations we are interested in, in class file notation
+     */
+    static final String JAVAX_FACES_DESC = "Ljavax/faces/";
+
+    Map<String, Set<String>> _annotations = new HashMap<String, Set<String>>();
+
+    Set<String> _toRegister = new HashSet<String>();
+    Set<String> _toPurge = new HashSet<String>();
+
+    volatile boolean _changed = false;
+
+    /**
+     * updates the index with the given changed classes
+     *
+     * @param loader          the loader serving the class files
+     * @param classNames      the classes changed since the last update
+     * @param existingClasses the dynamic classes which still exist, all others are deleted
+     */
+    public synchronized void update(ClassLoader loader, Collection<String> classNames, Set<String> existingClasses)
+    {
+        for (String className : classNames)
+        {
+            Set<String> annotations;
+            if (existingClasses.contains(className))
+            {
+                byte[] classBytes = ClassScanUtils.readClassBytes(loader, className);
+                //not compiled, we keep the state of the last successful compile
+                if (classBytes == null) continue;
+                annotations = readAnnotations(classBytes);
+            }
+            else
+            {
+                annotations = Collections.emptySet();
+            }
+            if (!annotations.isEmpty())
+            {
+                //the annotation values might have changed, hence every change means a reregistration
+                _annotations.put(className, annotations);
+                _toPurge.remove(className);
+                _toRegister.add(className);
+                _changed = true;
+            }
+            else if (_annotations.remove(className) != null)
+            {
+                _toRegister.remove(className);
+                _toPurge.add(className);
+                _changed = true;
+            }
+        }
+    }
+
+    /**
+     * @return true if there are changes which have not been applied yet
+     */
+    public boolean hasChanges()
+    {
+        return _changed;
+    }
+
+    /**
+     * fetches the pending changes and resets them
+     *
+     * @return the changes since the last call
+     */
+    public synchronized Changes fetchChanges()
+    {
+        Changes retVal = new Changes(_toRegister, _toPurge);
+        _toRegister = new HashSet<String>();
+        _toPurge = new HashSet<String>();
+        _changed = false;
+        return retVal;
+    }
+
+    /**
+     * @param className the class name
+     * @return the jsf annotations of the class, an empty set if it has none
+     */
+    public synchronized Set<String> getAnnotations(String className)
+    {
+        Set<String> retVal = _annotations.get(className);
+        return (retVal != null) ? retVal : Collections.<String>emptySet();
+    }
+
+    static Set<String> readAnnotations(byte[] classBytes)
+    {
+        AnnotationScanVisitor visitor = new AnnotationScanVisitor();
+        new ClassReader(classBytes).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return visitor._annotations;
+    }
+
+    /**
+     * the changes of the index between two fetches
+     */
+    public static class Changes
+    {
+        final Set<String> _registered;
+        final Set<String> _purged;
+
+        Changes(Set<String> registered, Set<String> purged)
+        {
+            _registered = registered;
+            _purged = purged;
+        }
+
+        /**
+         * @return the classes which have jsf annotations and have to be registered
+         */
+        public Set<String> getRegistered()
+        {
+            return _registered;
+        }
+
+        /**
+         * @return the classes which have lost their jsf annotations or have been deleted
+         */
+        public Set<String> getPurged()
+        {
+            return _purged;
+        }
+
+        public boolean isEmpty()
+        {
+            return _registered.isEmpty() && _purged.isEmpty();
+        }
+    }
+
+    /**
+     * collects the class level jsf annotations, everything else is skipped
+     */
+    static class AnnotationScanVisitor implements ClassVisitor
+    {
+        Set<String> _annotations = Collections.emptySet();
+
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces)
+        {
+        }
+
+        public void visitSource(String source, String debug)
+        {
+        }
+
+        public void visitOuterClass(String owner, String name, String desc)
+        {
+        }
+
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+        {
+            if (visible && desc.startsWith(JAVAX_FACES_DESC))
+            {
+                if (_annotations.isEmpty())
+                {
+                    _annotations = new HashSet<String>();
+                }
+                _annotations.add(Type.getType(desc).getClassName());
+            }
+            return null;
+        }
+
+        public void visitAttribute(Attribute attr)
+        {
+        }
+
+        public void visitInnerClass(String name, String outerName, String innerName, int access)
+        {
+        }
+
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
+        {
+            return null;
+        }
+
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+                                         String[] exceptions)
+        {
+            return null;
+        }
+
+        public void visitEnd()
+        {
+        }
+    }
+}
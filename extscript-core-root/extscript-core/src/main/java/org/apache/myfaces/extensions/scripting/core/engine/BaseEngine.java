@@ -19,12 +19,15 @@
 package org.apache.myfaces.extensions.scripting.core.engine;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
 import org.apache.myfaces.extensions.scripting.core.common.util.FileUtils;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.api.DependencyRegistry;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.registry.DependencyRegistryImpl;
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+import org.apache.myfaces.extensions.scripting.core.monitor.FileStateIndex;
+import org.apache.myfaces.extensions.scripting.core.monitor.ResourceStates;
 
 import javax.servlet.ServletContext;
 import java.io.File;
@@ -32,9 +35,11 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -53,6 +58,12 @@ public abstract class BaseEngine
     //a wrapper for the dep map with additional functionality
     ClassDependencies _dependencyMap = new ClassDependencies();
     DependencyRegistry _dependencyRegistry = new DependencyRegistryImpl(getEngineType(), _dependencyMap);
+    /*changed and deleted classes since the last dependency scan*/
+    Set<String> _classesToScan = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /*last seen state of the source files, unchanged files are skipped by the full scan*/
+    final FileStateIndex _fileStates = new FileStateIndex();
+    /*tainted and changed resources, updated by the resources themselves*/
+    final ResourceStates _resourceStates = new ResourceStates();
 
     Logger log = Logger.getLogger(this.getClass().getName());
 
@@ -90,43 +101,127 @@ public abstract class BaseEngine
      */
     public void scanForAddedDeleted()
     {
-        Set<String> processedClasses = new HashSet<String>();
-        processedClasses.addAll(_watchedResources.keySet());
-
+        _fileStates.beginScan();
         for (String sourcePath : getSourcePaths())
         {
             Collection<File> sourceFiles = FileUtils.fetchSourceFiles(new File(sourcePath), "*." + getFileEnding());
 
             for (File sourceFile : sourceFiles)
             {
-                ClassResource classToProcess = new ClassResource();
-                classToProcess.setFile(sourceFile);
-
-
-                classToProcess.setScriptingEngine(getEngineType());
-                if (!_watchedResources.containsKey(classToProcess.getIdentifier()))
-                {
-                    _watchedResources.put(classToProcess.getIdentifier(), classToProcess);
-                } else
-                {
-                    processedClasses.remove(classToProcess.getIdentifier());
-
-                    classToProcess = _watchedResources.get(classToProcess.getIdentifier());
-                }
-                if (classToProcess.needsRecompile())
-                {
-                    //TODO add entry for logging component here
-                    log.info("[EXT-SCRIPTING] tainting " + classToProcess.getIdentifier());
-                    classToProcess.setTainted(true);
-                    classToProcess.setChangedForCompile(true);
-                }
+                if (_fileStates.isUnchanged(sourceFile)) continue;
+                ClassResource classToProcess = processSourceFile(sourceFile);
+                _fileStates.update(sourceFile, classToProcess.getIdentifier());
             }
         }
-        for (String deleted : processedClasses)
+        List<String> deletedClasses = new ArrayList<String>();
+        _fileStates.endScan(deletedClasses);
+        for (String deleted : deletedClasses)
+        {
+            removeResource(deleted);
+        }
+
+    }
+
+    /**
+     * scans a single source file which has been reported as
+     * added, changed or deleted, this is the event driven
+     * counterpart to scanForAddedDeleted which only touches
+     * the resource the file belongs to
+     *
+     * @param sourceFile the source file which has been changed
+     */
+    public void scanSourceFile(File sourceFile)
+    {
+        if (!sourceFile.getName().endsWith("." + getFileEnding())) return;
+        if (sourceFile.exists())
+        {
+            ClassResource classToProcess = processSourceFile(sourceFile);
+            _fileStates.update(sourceFile, classToProcess.getIdentifier());
+            return;
+        }
+        String identifier = _fileStates.remove(sourceFile);
+        if (identifier == null)
+        {
+            ClassResource deleted = new ClassResource();
+            deleted.setFile(sourceFile);
+            deleted.setScriptingEngine(getEngineType());
+            identifier = deleted.getIdentifier();
+        }
+        removeResource(identifier);
+    }
+
+    /**
+     * removes a deleted resource, the classes referring to it
+     * are flagged for a recompile so that an incremental compile
+     * picks them up and reports the broken references
+     *
+     * @param identifier the identifier of the deleted resource
+     */
+    private void removeResource(String identifier)
+    {
+        ClassResource removed = _watchedResources.remove(identifier);
+        if (removed == null) return;
+        removed.setResourceStates(null);
+        _resourceStates.remove(removed);
+        WeavingContext.getInstance().unregisterResource(removed);
+        _classesToScan.add(identifier);
+        WeavingContext.getInstance().getClassStore().remove(identifier);
+        Set<String> referringClasses = _dependencyMap.getReferringClasses(identifier);
+        if (referringClasses == null) return;
+        for (String referringClass : referringClasses)
+        {
+            ClassResource referring = _watchedResources.get(referringClass);
+            if (referring == null) continue;
+            referring.setTainted(true);
+            referring.setChangedForCompile(true);
+        }
+    }
+
+    /**
+     * registers the source file if not already done and
+     * taints the resource if the file is newer than its compiled class
+     *
+     * @param sourceFile the source file to process
+     * @return the watched resource belonging to the source file
+     */
+    private ClassResource processSourceFile(File sourceFile)
+    {
+        //known files resolve their resource without computing the identifier again
+        String identifier = _fileStates.getIdentifier(sourceFile);
+        ClassResource classToProcess = (identifier == null) ? null : _watchedResources.get(identifier);
+        if (classToProcess == null)
+        {
+            classToProcess = registerSourceFile(sourceFile);
+        }
+        if (classToProcess.needsRecompile())
         {
-            _watchedResources.remove(deleted);
+            //TODO add entry for logging component here
+            log.info("[EXT-SCRIPTING] tainting " + classToProcess.getIdentifier());
+            classToProcess.setTainted(true);
+            classToProcess.setChangedForCompile(true);
+            _classesToScan.add(classToProcess.getIdentifier());
         }
+        return classToProcess;
+    }
 
+    /**
+     * registers a resource for the source file unless
+     * a resource with the same identifier already is watched
+     *
+     * @param sourceFile the source file
+     * @return the watched resource belonging to the source file
+     */
+    private ClassResource registerSourceFile(File sourceFile)
+    {
+        ClassResource classToProcess = new ClassResource();
+        classToProcess.setFile(sourceFile);
+        classToProcess.setScriptingEngine(getEngineType());
+        ClassResource watched = _watchedResources.get(classToProcess.getIdentifier());
+        if (watched != null) return watched;
+        classToProcess.setResourceStates(_resourceStates);
+        _watchedResources.put(classToProcess.getIdentifier(), classToProcess);
+        WeavingContext.getInstance().registerResource(classToProcess);
+        return classToProcess;
     }
 
     /**
@@ -136,12 +231,8 @@ public abstract class BaseEngine
      */
     public boolean needsRecompile()
     {
-        //TODO buffer this from scan
-        for (Map.Entry<String, ClassResource> resource : _watchedResources.entrySet())
-        {
-            if (resource.getValue().needsRecompile()) return true;
-        }
-        return false;
+        //the scan flags every resource newer than its class as changed for compile
+        return _resourceStates.isChangedForCompile();
     }
 
     /**
@@ -151,12 +242,50 @@ public abstract class BaseEngine
      */
     public boolean isTainted()
     {
-        //TODO buffer this from scan
-        for (Map.Entry<String, ClassResource> resource : _watchedResources.entrySet())
+        return _resourceStates.isTainted();
+    }
+
+    /**
+     * @return a live read only view on the tainted resources of this engine
+     */
+    public Collection<ClassResource> getTaintedResources()
+    {
+        return _resourceStates.getTainted();
+    }
+
+    /**
+     * determines the source files an incremental compile has to process,
+     * the changed resources and all classes referring to them
+     * directly or indirectly
+     *
+     * @return the source files of the changed resources and their dependents
+     */
+    public Collection<File> getSourceFilesToCompile()
+    {
+        Set<String> toCompile = new HashSet<String>();
+        for (ClassResource resource : _watchedResources.values())
         {
-            if (resource.getValue().isTainted()) return true;
+            if (!resource.needsRecompile() && !resource.isChangedForCompile()) continue;
+            toCompile.add(resource.getIdentifier());
+        }
+        toCompile.addAll(_dependencyMap.getTransitiveReferringClasses(toCompile));
+        List<File> retVal = new ArrayList<File>(toCompile.size());
+        for (String identifier : toCompile)
+        {
+            ClassResource resource = _watchedResources.get(identifier);
+            if (resource != null && resource.getFile().exists())
+            {
+                retVal.add(resource.getFile());
+            }
         }
-        return false;
+        return retVal;
+    }
+
+    public Collection<String> fetchClassesToScan()
+    {
+        List<String> retVal = new ArrayList<String>(_classesToScan);
+        _classesToScan.removeAll(retVal);
+        return retVal;
     }
 
     public DependencyRegistry getDependencyRegistry()
@@ -186,46 +315,36 @@ public abstract class BaseEngine
     public void markTaintedDependencies()
     {
         //basic tainted set by the full scall
-        Set<String> _processedClasses = new HashSet<String>();
-        for (Map.Entry<String, ClassResource> entry : _watchedResources.entrySet())
+        Set<String> changedClasses = new HashSet<String>();
+        for (ClassResource resource : new ArrayList<ClassResource>(_resourceStates.getChangedForCompile()))
         {
             //TODO add entry for logging component here
-            ClassResource resource = entry.getValue();
-            if (!resource.isChangedForCompile()) continue;
             resource.setChangedForCompile(false);
             log.info("[EXT-SCRIPTING] tainting dependency " + resource.getIdentifier());
             resource.setTainted(true);
-            //classname
-            String identifier = resource.getIdentifier();
-            if (_processedClasses.contains(identifier)) continue;
-            markDependencies(_processedClasses, identifier);
-
+            changedClasses.add(resource.getIdentifier());
         }
-
+        if (changedClasses.isEmpty()) return;
+        markDependencies(changedClasses);
     }
 
-    /*marks all backward dependencies of the existing class*/
-    private void markDependencies(Set<String> _processedClasses, String identifier)
+    /*marks all backward dependencies of the changed classes, the graph walk is done in one go*/
+    private void markDependencies(Set<String> changedClasses)
     {
-        Set<String> referringClasses = _dependencyMap.getReferringClasses(identifier);
-        if (referringClasses == null) return;
-        for (String referringClass : referringClasses)
+        for (String referringClass : _dependencyMap.getTransitiveReferringClasses(changedClasses))
         {
-            if (_processedClasses.contains(referringClass)) continue;
+            if (changedClasses.contains(referringClass)) continue;
             ClassResource toTaint = _watchedResources.get(referringClass);
             if (toTaint == null) continue;
             //TODO add entry for logging component here
             if (toTaint.isTainted())
             {
                 log.info("[EXT-SCRIPTING] dependency already tainted:" + toTaint.getIdentifier());
-                _processedClasses.add(toTaint.getIdentifier());
                 continue;
             }
             toTaint.setTainted(true);
             toTaint.setChangedForCompile(false);
             log.info("[EXT-SCRIPTING] tainting dependency " + toTaint.getIdentifier());
-            _processedClasses.add(toTaint.getIdentifier());
-            markDependencies(_processedClasses, toTaint.getIdentifier());
         }
 
     }
@@ -21,18 +21,24 @@ package org.apache.myfaces.extensions.scripting.core.engine;
 
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
-import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.StandardDependencyScanner;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.BytecodeDependencyScanner;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.api.DependencyScanner;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.filter.WhitelistFilter;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.registry.BufferedDependencyRegistry;
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.registry.ExternalFilterDependencyRegistry;
 
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,9 +50,16 @@ import java.util.logging.Logger;
 public abstract class BaseScanner
 {
     List<String> _scanPaths = new LinkedList<String>();
-    DependencyScanner _depencyScanner = new StandardDependencyScanner();
+    //works on the class file bytes only, no class is defined for a scan
+    DependencyScanner _depencyScanner = new BytecodeDependencyScanner();
     Logger _log = Logger.getLogger(BaseScanner.class.getName());
 
+    /**
+     * number of classes one scan worker processes
+     * before the batch is split further
+     */
+    static final int SCAN_BATCH_SIZE = 32;
+
     public abstract int getEngineType();
 
     public abstract String getFileEnding();
@@ -66,20 +79,120 @@ public abstract class BaseScanner
             _log.info("[EXT-SCRITPING] starting class dependency scan");
         }
         long start = System.currentTimeMillis();
+        //only the classes changed since the last scan are rescanned
+        Collection<String> classesToScan = engine.fetchClassesToScan();
+        if (classesToScan.isEmpty()) return;
         final Set<String> possibleDynamicClasses = new HashSet<String>(engine.getPossibleDynamicClasses());
+        //references into the classes of other engines are recorded as well
+        //the compile pipeline determines the engine order from them
+        final Set<String> allDynamicClasses = new HashSet<String>();
+        for (ScriptingEngine currentEngine : WeavingContext.getInstance().getEngines())
+        {
+            allDynamicClasses.addAll(currentEngine.getPossibleDynamicClasses());
+        }
+
+        ExternalFilterDependencyRegistry scanRegistry = (ExternalFilterDependencyRegistry) engine
+                .getDependencyRegistry();
+        //the filters are the same for all classes of this scan
+        scanRegistry.clearFilters();
+        scanRegistry.addFilter(new WhitelistFilter(allDynamicClasses));
 
         final ClassLoader loader = getClassLoader();
-        for (String dynamicClass : possibleDynamicClasses)
+        //the jsf annotations are indexed from the same class files
+        WeavingContext.getInstance().getAnnotationIndex().update(loader, classesToScan, possibleDynamicClasses);
+        ClassDependencies dependencyMap = engine.getDependencyMap();
+        List<String> dynamicClasses = new ArrayList<String>(classesToScan.size());
+        for (String dynamicClass : classesToScan)
+        {
+            //the old edges of the class are dropped before the new ones are added
+            dependencyMap.removeReferrer(dynamicClass);
+            //deleted classes only lose their edges
+            if (!possibleDynamicClasses.contains(dynamicClass)) continue;
+            dynamicClasses.add(dynamicClass);
+        }
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool scanPool = null;
+        if (parallelism > 1 && dynamicClasses.size() > SCAN_BATCH_SIZE)
+        {
+            //the pool is shared by the scanners of all engines
+            scanPool = WeavingContext.getInstance().getScanPool(parallelism);
+        }
+        if (scanPool != null)
         {
-            runScan(possibleDynamicClasses, loader, dynamicClass);
+            //large batches, for instance after a checkout, are split over all cores
+            scanPool.invoke(new ScanTask(_depencyScanner, loader, getEngineType(), dynamicClasses,
+                    0, dynamicClasses.size(), scanRegistry, dependencyMap));
+        }
+        else
+        {
+            scanClasses(_depencyScanner, loader, getEngineType(), dynamicClasses, 0, dynamicClasses.size(),
+                    new BufferedDependencyRegistry(scanRegistry, dependencyMap));
         }
 
         long end = System.currentTimeMillis();
         if (_log.isLoggable(Level.FINE))
         {
-            _log.log(Level.FINE, "[EXT-SCRITPING] class dependency scan finished, duration: {0} ms", Long.toString(end - start));
+            _log.log(Level.FINE, "[EXT-SCRITPING] class dependency scan of {0} classes finished, duration: {1} ms",
+                    new Object[]{classesToScan.size(), Long.toString(end - start)});
+        }
+
+    }
+
+    private static void scanClasses(DependencyScanner scanner, ClassLoader loader, int engineType,
+                                    List<String> dynamicClasses, int from, int to, BufferedDependencyRegistry registry)
+    {
+        for (int cnt = from; cnt < to; cnt++)
+        {
+            scanner.fetchDependencies(loader, engineType, dynamicClasses.get(cnt), registry);
+        }
+    }
+
+    /**
+     * scans a range of the dynamic classes, the range is split
+     * until it fits into one batch, every batch gets its own registry sink
+     */
+    static class ScanTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 3402185726531472071L;
+
+        final DependencyScanner _scanner;
+        final ClassLoader _loader;
+        final int _engineType;
+        final List<String> _dynamicClasses;
+        final int _from;
+        final int _to;
+        final ExternalFilterDependencyRegistry _registry;
+        final ClassDependencies _dependencyMap;
+
+        ScanTask(DependencyScanner scanner, ClassLoader loader, int engineType, List<String> dynamicClasses,
+                 int from, int to, ExternalFilterDependencyRegistry registry, ClassDependencies dependencyMap)
+        {
+            _scanner = scanner;
+            _loader = loader;
+            _engineType = engineType;
+            _dynamicClasses = dynamicClasses;
+            _from = from;
+            _to = to;
+            _registry = registry;
+            _dependencyMap = dependencyMap;
         }
 
+        @Override
+        protected void compute()
+        {
+            if (_to - _from <= SCAN_BATCH_SIZE)
+            {
+                scanClasses(_scanner, _loader, _engineType, _dynamicClasses, _from, _to,
+                        new BufferedDependencyRegistry(_registry, _dependencyMap));
+                return;
+            }
+            int middle = (_from + _to) >>> 1;
+            invokeAll(new ScanTask(_scanner, _loader, _engineType, _dynamicClasses, _from, middle, _registry,
+                    _dependencyMap),
+                    new ScanTask(_scanner, _loader, _engineType, _dynamicClasses, middle, _to, _registry,
+                            _dependencyMap));
+        }
     }
 
     public void scanClass(Class clazz)
@@ -87,18 +200,9 @@ public abstract class BaseScanner
         //TODO do nothing here
     }
 
-    private void runScan(final Set<String> possibleDynamicClasses, final ClassLoader loader, String dynamicClass)
+    public void prepareScan()
     {
-        //TODO implement the dep registry
-        ExternalFilterDependencyRegistry scanRegistry = (ExternalFilterDependencyRegistry) WeavingContext.getInstance()
-                .getEngine(getEngineType()).getDependencyRegistry();
-
-        scanRegistry.clearFilters();
-        //We have to dynamically readjust the filters
-        scanRegistry.addFilter(new WhitelistFilter(possibleDynamicClasses));
-        //here we have a clear boundary into the ASM part
-        _depencyScanner.fetchDependencies(loader, getEngineType(), dynamicClass,
-                WeavingContext.getInstance().getEngine(getEngineType()).getDependencyRegistry());
+        //the dependency scan runs on the monitor thread anyway, nothing to prepare
     }
 
     protected ClassLoader getClassLoader()
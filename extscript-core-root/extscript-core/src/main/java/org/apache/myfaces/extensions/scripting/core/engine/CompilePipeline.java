@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.engine;
+
+import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationMessage;
+import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationResult;
+import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * compiles the engines of one compile cycle in parallel
+ * <p>&nbsp;</p>
+ * The engines are passed in the order of the engine factory
+ * (java always last), an engine only can depend on the output
+ * of the engines before it. It waits for those engines only if
+ * its dependency map references one of their classes or if it has
+ * not been scanned yet, all other engines are compiled in parallel.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class CompilePipeline
+{
+    static final Logger _log = Logger.getLogger(CompilePipeline.class.getName());
+
+    volatile ThreadPoolExecutor _executor = null;
+    volatile boolean _shutdown = false;
+
+    /**
+     * compiles the given engines
+     *
+     * @param engines the engines to compile in factory order
+     * @return the compilation results per engine type
+     */
+    public Map<Integer, CompilationResult> compile(List<ScriptingEngine> engines)
+    {
+        Map<Integer, CompilationResult> results = new LinkedHashMap<Integer, CompilationResult>();
+        ThreadPoolExecutor executor = (engines.size() == 1) ? null : getExecutor(engines.size());
+        if (executor == null)
+        {
+            //no need for a thread handover, the factory order already
+            //satisfies the dependencies
+            for (ScriptingEngine engine : engines)
+            {
+                results.put(engine.getEngineType(), compileEngine(engine));
+            }
+            return results;
+        }
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        List<Future<CompilationResult>> futures = new ArrayList<Future<CompilationResult>>(engines.size());
+        for (int pos = 0; pos < engines.size(); pos++)
+        {
+            final ScriptingEngine engine = engines.get(pos);
+            final List<Future<CompilationResult>> predecessors = new ArrayList<Future<CompilationResult>>();
+            for (int cnt = 0; cnt < pos; cnt++)
+            {
+                if (dependsOn(engine, engines.get(cnt)))
+                {
+                    predecessors.add(futures.get(cnt));
+                }
+            }
+            Callable<CompilationResult> compileTask = new Callable<CompilationResult>()
+            {
+                public CompilationResult call() throws Exception
+                {
+                    //predecessors always are submitted first, hence waiting on them cannot deadlock
+                    for (Future<CompilationResult> predecessor : predecessors)
+                    {
+                        awaitQuietly(predecessor);
+                    }
+                    Thread currentThread = Thread.currentThread();
+                    ClassLoader oldLoader = currentThread.getContextClassLoader();
+                    currentThread.setContextClassLoader(contextLoader);
+                    try
+                    {
+                        return compileEngine(engine);
+                    }
+                    finally
+                    {
+                        currentThread.setContextClassLoader(oldLoader);
+                    }
+                }
+            };
+            try
+            {
+                futures.add(executor.submit(compileTask));
+            }
+            catch (RejectedExecutionException e)
+            {
+                //shut down in the middle of a compile, the rest runs on the calling thread
+                FutureTask<CompilationResult> inlineTask = new FutureTask<CompilationResult>(compileTask);
+                inlineTask.run();
+                futures.add(inlineTask);
+            }
+        }
+        for (int pos = 0; pos < engines.size(); pos++)
+        {
+            results.put(engines.get(pos).getEngineType(), awaitQuietly(futures.get(pos)));
+        }
+        return results;
+    }
+
+    /**
+     * merges the results of a compile cycle into one result
+     *
+     * @param results the results of the single engines
+     * @return the aggregated result
+     */
+    public static CompilationResult aggregate(Iterable<CompilationResult> results)
+    {
+        StringBuilder output = new StringBuilder();
+        List<CompilationResult> toMerge = new ArrayList<CompilationResult>();
+        for (CompilationResult result : results)
+        {
+            if (result == null) continue;
+            toMerge.add(result);
+            if (result.getCompilerOutput() != null && result.getCompilerOutput().length() > 0)
+            {
+                output.append(result.getCompilerOutput()).append("\n");
+            }
+        }
+        CompilationResult retVal = new CompilationResult(output.toString());
+        for (CompilationResult result : toMerge)
+        {
+            for (CompilationMessage error : result.getErrors())
+            {
+                retVal.registerError(error);
+            }
+            for (CompilationMessage warning : result.getWarnings())
+            {
+                retVal.registerWarning(warning);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * an engine depends on another one if its dependency map references classes
+     * of the other one, an unscanned engine is treated as depending on all
+     */
+    boolean dependsOn(ScriptingEngine engine, ScriptingEngine other)
+    {
+        Set<String> referencedClasses = engine.getDependencyMap().getReferencedClasses();
+        if (referencedClasses.isEmpty()) return true;
+        Map<String, ?> otherClasses = other.getWatchedResources();
+        for (String referencedClass : referencedClasses)
+        {
+            if (otherClasses.containsKey(referencedClass)) return true;
+        }
+        return false;
+    }
+
+    private CompilationResult compileEngine(ScriptingEngine engine)
+    {
+        try
+        {
+            return engine.compile();
+        }
+        catch (RuntimeException e)
+        {
+            _log.log(Level.SEVERE, "[EXT-SCRIPTING] compile of " + engine.getEngineTypeAsStr() + " failed", e);
+            CompilationResult result = new CompilationResult(e.toString());
+            result.registerError(new CompilationMessage(-1, e.toString()));
+            return result;
+        }
+    }
+
+    private CompilationResult awaitQuietly(Future<CompilationResult> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e)
+        {
+            _log.log(Level.SEVERE, "[EXT-SCRIPTING] compile failed", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * stops the compiler threads, later compiles run on the calling thread
+     */
+    public synchronized void shutdown()
+    {
+        _shutdown = true;
+        if (_executor != null)
+        {
+            _executor.shutdownNow();
+            _executor = null;
+        }
+    }
+
+    /**
+     * @return the compiler threads, null after a shutdown
+     */
+    private ThreadPoolExecutor getExecutor(int engineCount)
+    {
+        if (_executor == null)
+        {
+            synchronized (this)
+            {
+                if (_executor == null && !_shutdown)
+                {
+                    int poolSize = Math.max(1, Math.min(engineCount, Runtime.getRuntime().availableProcessors()));
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                    {
+                        final AtomicInteger _threadCount = new AtomicInteger();
+
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread compiler = new Thread(runnable, "ExtScript compiler " + _threadCount.incrementAndGet());
+                            compiler.setDaemon(true);
+                            return compiler;
+                        }
+                    });
+                    //idle compiler threads should not outlive the compile cycles
+                    executor.allowCoreThreadTimeOut(true);
+                    _executor = executor;
+                }
+            }
+        }
+        return _executor;
+    }
+}
@@ -95,7 +95,8 @@ public class EngineGroovy extends BaseEngine implements ScriptingEngine
         WeavingContext context = WeavingContext.getInstance();
         Configuration configuration = context.getConfiguration();
         GroovyCompiler compiler = new GroovyCompiler();
-        File targetDir = configuration.getCompileTarget();
+        //we compile into the staging area, the classes are published after the compile
+        File targetDir = configuration.getStagingTarget();
         Collection<String> sourceDirs = configuration.getSourceDirs(ENGINE_TYPE_JSF_GROOVY);
         CompilationResult res = null;
         for (String sourceRoot : sourceDirs)
@@ -105,11 +106,13 @@ public class EngineGroovy extends BaseEngine implements ScriptingEngine
         return res;
     }
 
+    /*kept over the cycles, the scans are incremental*/
+    final GroovyDependencyScanner _dependencyScanner = new GroovyDependencyScanner();
+
     public void scanDependencies()
     {
         log.info("[EXT-SCRIPTING] starting dependency scan");
-        GroovyDependencyScanner scanner = new GroovyDependencyScanner();
-        scanner.scanPaths();
+        _dependencyScanner.scanPaths();
         log.info("[EXT-SCRIPTING] ending dependency scan");
     }
 
@@ -19,7 +19,6 @@
 
 package org.apache.myfaces.extensions.scripting.core.engine;
 
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.myfaces.extensions.scripting.core.api.Configuration;
 import org.apache.myfaces.extensions.scripting.core.api.ReloadingStrategy;
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
@@ -27,13 +26,12 @@ import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
 import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationResult;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
 import org.apache.myfaces.extensions.scripting.core.engine.compiler.JRubyCompiler;
+import org.apache.myfaces.extensions.scripting.core.reloading.PropertyTransferPlanner;
 import org.apache.myfaces.extensions.scripting.core.reloading.SimpleReloadingStrategy;
 
 import javax.servlet.ServletContext;
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.apache.myfaces.extensions.scripting.core.api.ScriptingConst.ENGINE_TYPE_JSF_JRUBY;
@@ -89,21 +87,7 @@ public class EngineJRuby extends BaseEngine implements ScriptingEngine
     @Override
     public void copyProperties(Object dest, Object src)
     {
-        try
-        {
-
-            BeanUtils.copyProperties(dest, src);
-        }
-        catch (IllegalAccessException e)
-        {
-            log.log(Level.FINEST, e.toString());
-            //this is wanted
-        }
-        catch (InvocationTargetException e)
-        {
-            log.log(Level.FINEST, e.toString());
-            //this is wanted
-        }
+        PropertyTransferPlanner.copyProperties(dest, src);
     }
 
     @Override
@@ -119,7 +103,8 @@ public class EngineJRuby extends BaseEngine implements ScriptingEngine
         WeavingContext context = WeavingContext.getInstance();
         Configuration configuration = context.getConfiguration();
         JRubyCompiler compiler = new JRubyCompiler();
-        File targetDir = configuration.getCompileTarget();
+        //we compile into the staging area, the classes are published after the compile
+        File targetDir = configuration.getStagingTarget();
         Collection<String> sourceDirs = configuration.getSourceDirs(ENGINE_TYPE_JSF_JRUBY);
         CompilationResult res = null;
         for (String sourceRoot : sourceDirs)
@@ -129,11 +114,13 @@ public class EngineJRuby extends BaseEngine implements ScriptingEngine
         return res;
     }
 
+    /*kept over the cycles, the scans are incremental*/
+    final JRubyDependencyScanner _dependencyScanner = new JRubyDependencyScanner();
+
     public void scanDependencies()
     {
         log.info("[EXT-SCRIPTING] starting jruby dependency scan");
-        JRubyDependencyScanner scanner = new JRubyDependencyScanner();
-        scanner.scanPaths();
+        _dependencyScanner.scanPaths();
         log.info("[EXT-SCRIPTING] ending jruby dependency scan");
     }
 
@@ -19,7 +19,6 @@
 
 package org.apache.myfaces.extensions.scripting.core.engine;
 
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.myfaces.extensions.scripting.core.api.Configuration;
 import org.apache.myfaces.extensions.scripting.core.api.ReloadingStrategy;
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
@@ -27,14 +26,16 @@ import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
 import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationMessage;
 import org.apache.myfaces.extensions.scripting.core.engine.api.CompilationResult;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
+import org.apache.myfaces.extensions.scripting.core.engine.compiler.CompileCache;
 import org.apache.myfaces.extensions.scripting.core.engine.compiler.JSR199Compiler;
+import org.apache.myfaces.extensions.scripting.core.reloading.PropertyTransferPlanner;
 import org.apache.myfaces.extensions.scripting.core.reloading.SimpleReloadingStrategy;
 
 import javax.servlet.ServletContext;
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.logging.Level;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static org.apache.myfaces.extensions.scripting.core.api.ScriptingConst.ENGINE_TYPE_JSF_JAVA;
@@ -55,40 +56,103 @@ public class EngineJava extends BaseEngine implements ScriptingEngine
     public void init(ServletContext context)
     {
         initPaths(context, INIT_PARAM_CUSTOM_JAVA_LOADER_PATHS, JAVA_SOURCE_ROOT);
+        String compileCacheDir = WeavingContext.getInstance().getConfiguration().getCompileCacheDir();
+        if (compileCacheDir != null)
+        {
+            _compileCache = new CompileCache(new File(compileCacheDir, getEngineTypeAsStr().toLowerCase()));
+        }
     }
 
+    /**
+     * the first compile always is a full compile, afterwards
+     * we can rely on the already compiled classes
+     */
+    volatile boolean _fullCompileDone = false;
+
+    /**
+     * the compiler is kept over the compile cycles
+     * to be able to reuse its compiler session
+     */
+    final JSR199Compiler _compiler = new JSR199Compiler();
+
+    /**
+     * persistent cache which allows to skip the initial compile after a restart
+     */
+    volatile CompileCache _compileCache = null;
+
     /**
      * full compile will be called cyclicly
-     * from the startup and daemon thread
+     * from the startup and daemon thread,
+     * after the first full compile only the changed
+     * classes and their dependents are compiled
+     * if incremental compilation is enabled
      */
     public CompilationResult compile()
     {
         WeavingContext context = WeavingContext.getInstance();
         Configuration configuration = context.getConfiguration();
-        JSR199Compiler compiler = new JSR199Compiler();
-        File targetDir = configuration.getCompileTarget();
+        JSR199Compiler compiler = _compiler;
+        //we compile into the staging area, the classes are published after the compile
+        File targetDir = configuration.getStagingTarget();
         Collection<String> sourceDirs = configuration.getSourceDirs(getEngineType());
-        CompilationResult res = null;
-        for (String sourceRoot : sourceDirs)
+        CompilationResult res;
+        //the unchanged classes from the last run are restored, the rest is compiled incrementally
+        if (!_fullCompileDone && _compileCache != null && configuration.isIncrementalCompile()
+                && _compileCache.restore(getWatchedResources(), context.getClassStore()) > 0)
         {
-            res =  compiler.compile(new File(sourceRoot), targetDir,
-                ClassUtils.getContextClassLoader());
-            if(res.hasErrors()) {
-               for(CompilationMessage msg :res.getErrors()) {
-                   log.severe(msg.getMessage());
-               }
-               // log.severe(res.getCompilerOutput());
-            }
+            _fullCompileDone = true;
+        }
+        if (_fullCompileDone && configuration.isIncrementalCompile())
+        {
+            res = compiler.compile(sourceDirs, getWhitelistedFiles(configuration, getSourceFilesToCompile()),
+                    targetDir, ClassUtils.getContextClassLoader());
+        } else
+        {
+            res = compiler.compile(sourceDirs, targetDir, ClassUtils.getContextClassLoader());
+            _fullCompileDone = true;
+        }
+        if(res.hasErrors()) {
+           for(CompilationMessage msg :res.getErrors()) {
+               log.severe(msg.getMessage());
+           }
+           // log.severe(res.getCompilerOutput());
         }
         return res;
     }
 
+    /*the full compile only processes whitelisted dirs, the incremental one has to follow that*/
+    private Collection<File> getWhitelistedFiles(Configuration configuration, Collection<File> sourceFiles)
+    {
+        Collection<String> whitelistedDirs = configuration.getWhitelistedSourceDirs(getEngineType());
+        List<File> retVal = new ArrayList<File>(sourceFiles.size());
+        for (File sourceFile : sourceFiles)
+        {
+            String path = sourceFile.getAbsolutePath();
+            for (String whitelistedDir : whitelistedDirs)
+            {
+                if (path.startsWith(new File(whitelistedDir).getAbsolutePath()))
+                {
+                    retVal.add(sourceFile);
+                    break;
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /*kept over the cycles, the scans are incremental*/
+    final JavaDependencyScanner _dependencyScanner = new JavaDependencyScanner();
+
     public void scanDependencies()
     {
         log.info("[EXT-SCRIPTING] starting dependency scan "+getEngineTypeAsStr());
-        JavaDependencyScanner scanner = new JavaDependencyScanner();
-        scanner.scanPaths();
+        _dependencyScanner.scanPaths();
         log.info("[EXT-SCRIPTING] ending dependency scan" + getEngineTypeAsStr());
+        //the dependencies are part of the cache entries, hence we store after the scan
+        if (_compileCache != null)
+        {
+            _compileCache.store(getWatchedResources(), getDependencyMap(), WeavingContext.getInstance().getClassStore());
+        }
     }
 
     //-------------------------------------------------------------------------------------
@@ -118,16 +182,7 @@ public class EngineJava extends BaseEngine implements ScriptingEngine
     @Override
     public void copyProperties(Object dest, Object src)
     {
-
-        try {
-            BeanUtils.copyProperties(dest, src);
-        } catch (IllegalAccessException e) {
-            log.log(Level.FINEST, e.toString());
-            //this is wanted
-        } catch (InvocationTargetException e) {
-            log.log(Level.FINEST, e.toString());
-            //this is wanted
-        }
+        PropertyTransferPlanner.copyProperties(dest, src);
     }
 
     @Override
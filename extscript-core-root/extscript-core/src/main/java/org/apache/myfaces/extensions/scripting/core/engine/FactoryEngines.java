@@ -25,8 +25,8 @@ import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -42,6 +42,8 @@ public class FactoryEngines
     final Logger _log = Logger.getLogger(this.getClass().getName());
     /*we have to keep the order of the engines for the class detection*/
     Map<Integer, ScriptingEngine> _engines = new LinkedHashMap<Integer, ScriptingEngine>();
+    /*immutable snapshot of the engines in their order, rebuilt by init*/
+    volatile Collection<ScriptingEngine> _engineView = Collections.emptyList();
 
     public void init() throws IOException
     {
@@ -92,18 +94,16 @@ public class FactoryEngines
             }
 
             _engines.put(javaEngine.getEngineType(), javaEngine);
+            _engineView = Collections.unmodifiableList(new ArrayList<ScriptingEngine>(_engines.values()));
         }
     }
 
+    /**
+     * @return an immutable view on the engines in the order of the class detection
+     */
     public Collection<ScriptingEngine> getEngines()
     {
-        List<ScriptingEngine> engineList = new ArrayList<ScriptingEngine>();
-        for (Map.Entry<Integer, ScriptingEngine> entry : _engines.entrySet())
-        {
-            engineList.add(entry.getValue());
-        }
-
-        return engineList;
+        return _engineView;
     }
 
     public ScriptingEngine getEngine(int engineType)
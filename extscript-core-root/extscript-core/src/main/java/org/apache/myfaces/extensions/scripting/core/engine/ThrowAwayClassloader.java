@@ -23,6 +23,7 @@ import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -78,15 +79,51 @@ public class ThrowAwayClassloader extends ClassLoader
     public Class<?> loadClass(String className) throws ClassNotFoundException
     {
         ClassResource res = (ClassResource) WeavingContext.getInstance().getResource(className);
-        if (res == null) return super.loadClass(className);
+        if (res == null) return loadNonResourceClass(className);
         if (!res.isTainted() && res.getAClass() != null) return res.getAClass();
-        File target = resolveClassFile(className);
-        //a load must happen anyway because the target was recompiled
+        //java classes are served from the in memory store, the other engines compile to disk
+        byte[] fileContent = WeavingContext.getInstance().getClassStore().getClassBytes(className);
+        if (fileContent == null)
+        {
+            fileContent = readClassFile(resolveClassFile(className));
+        }
+        //here we use trick17 we can store as many classes of the same name
+        //as long as we store with a new classloader every time it needs refresh
+        //we need to do it because the classloader can call itself recursively
+        Class retVal = (new ThrowAwayClassloader(getParent(),_untaint)).defineClass(className, fileContent, 0,
+                fileContent.length);
+        if(_untaint) {
+            res.setAClass(retVal);
+            res.setTainted(false);
+        }
+        return retVal;
+
+    }
+
+    /**
+     * classes without resource (inner classes for instance) are defined
+     * by this loader if they are in the class store
+     */
+    private Class<?> loadNonResourceClass(String className) throws ClassNotFoundException
+    {
+        byte[] fileContent = WeavingContext.getInstance().getClassStore().getClassBytes(className);
+        if (fileContent == null) return super.loadClass(className);
+        synchronized (this)
+        {
+            Class<?> retVal = findLoadedClass(className);
+            if (retVal == null)
+            {
+                retVal = super.defineClass(className, fileContent, 0, fileContent.length);
+            }
+            return retVal;
+        }
+    }
+
+    private byte[] readClassFile(File target) throws ClassNotFoundException
+    {
         int fileLength;
         byte[] fileContent;
         FileInputStream iStream = null;
-        //we cannot load while a compile is in progress
-        //we have to wait until it is one
         try
         {
             fileLength = (int) target.length();
@@ -94,6 +131,7 @@ public class ThrowAwayClassloader extends ClassLoader
             iStream = new FileInputStream(target);
             int result = iStream.read(fileContent);
             _logger.log(Level.FINER, "read {0} bytes", String.valueOf(result));
+            return fileContent;
         }
         catch (FileNotFoundException e)
         {
@@ -118,27 +156,20 @@ public class ThrowAwayClassloader extends ClassLoader
                 }
             }
         }
-        //here we use trick17 we can store as many classes of the same name
-        //as long as we store with a new classloader every time it needs refresh
-        //we need to do it because the classloader can call itself recursively
-        //TODO we might run into issues here with inner classes
-        Class retVal;
-        if (res != null) {
-            retVal = (new ThrowAwayClassloader(getParent(),_untaint)).defineClass(className, fileContent, 0, fileLength);
-            if(_untaint) {
-                res.setAClass(retVal);
-                res.setTainted(false);
-            }
-        } else {
-            retVal = super.defineClass(className, fileContent, 0, fileLength);
-        }
-        return retVal;
-
     }
 
     @Override
     public InputStream getResourceAsStream(String name)
-    {                   
+    {
+        if (name.endsWith(".class"))
+        {
+            String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+            byte[] classBytes = WeavingContext.getInstance().getClassStore().getClassBytes(className);
+            if (classBytes != null)
+            {
+                return new ByteArrayInputStream(classBytes);
+            }
+        }
         File resource = new File(WeavingContext.getInstance().getConfiguration().getCompileTarget().getAbsolutePath()+File
                 .separator+name); //resolveClassFile(name);
         if (resource.exists())
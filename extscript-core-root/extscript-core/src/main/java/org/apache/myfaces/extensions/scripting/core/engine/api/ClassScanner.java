@@ -34,6 +34,12 @@ public interface ClassScanner {
     public void scanPaths();
     public void scanClass(Class clazz);
 
+    /**
+     * prepares the results of the next scanPaths off the request threads,
+     * called by the monitor once a compile cycle has ended
+     */
+    public void prepareScan();
+
     public void addScanPath(String scanPath);
 
 }
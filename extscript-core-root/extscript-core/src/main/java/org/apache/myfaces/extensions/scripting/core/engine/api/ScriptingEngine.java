@@ -24,6 +24,7 @@ import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.C
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
 
 import javax.servlet.ServletContext;
+import java.io.File;
 import java.util.Collection;
 import java.util.Map;
 
@@ -59,6 +60,14 @@ public interface ScriptingEngine
      */
     public void scanForAddedDeleted();
 
+    /**
+     * scans a single source file which has been added, changed or deleted
+     * and taints or removes the corresponding resource
+     *
+     * @param sourceFile the source file reported by the file monitor
+     */
+    public void scanSourceFile(File sourceFile);
+
     /**
      * runs the compile cycle for this engine
      *
@@ -80,6 +89,11 @@ public interface ScriptingEngine
      */
     public boolean needsRecompile();
 
+    /**
+     * @return a live read only view on the tainted resources of this engine
+     */
+    public Collection<ClassResource> getTaintedResources();
+
     /**
      * gets the dependency map hosted in this engine
      *
@@ -99,6 +113,14 @@ public interface ScriptingEngine
      */
     public void scanDependencies();
 
+    /**
+     * fetches and resets the classes which have changed
+     * (or were deleted) since the last dependency scan
+     *
+     * @return the classes which need a dependency rescan
+     */
+    public Collection<String> fetchClassesToScan();
+
     /**
      * mark the classes which are dependend
      * as tainted according to the dependency graph
@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.engine.compiler;
+
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
+import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * persistent compile cache which survives restarts
+ * <p>&nbsp;</p>
+ * every compiled source is stored with the content hash of its
+ * source file and the classes referring to it. On startup a cached
+ * class is only reused if its source and all the sources it depends on
+ * are unchanged, the rest is left to the incremental compile.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class CompileCache
+{
+    static final Logger _log = Logger.getLogger(CompileCache.class.getName());
+
+    static final String INDEX_FILE = "compile-cache.properties";
+    static final String CLASSES_DIR = "classes";
+    static final String KEY_CLASSPATH = "classpath";
+    static final String KEY_CLASS_PREFIX = "class.";
+    static final String HASH_SEPARATOR = "|";
+
+    final File _cacheDir;
+    final File _classesDir;
+    /*className -> hash|referrer1,referrer2 as last stored*/
+    final Properties _index = new Properties();
+    /*source path -> modification time:hash, saves the rehashing of unchanged sources*/
+    final Map<String, String> _hashCache = new ConcurrentHashMap<String, String>();
+
+    public CompileCache(File cacheDir)
+    {
+        _cacheDir = cacheDir;
+        _classesDir = new File(cacheDir, CLASSES_DIR);
+        loadIndex();
+    }
+
+    /**
+     * restores all cached classes whose sources and dependencies
+     * are unchanged into the class store
+     *
+     * @param resources the watched resources of the engine
+     * @param store     the class store to restore into
+     * @return the number of restored sources
+     */
+    public int restore(Map<String, ClassResource> resources, CompiledClassStore store)
+    {
+        if (!getClasspathSignature().equals(_index.getProperty(KEY_CLASSPATH)))
+        {
+            _log.info("[EXT-SCRIPTING] compile cache classpath changed, cache not used");
+            return 0;
+        }
+        //first we determine the changed sources
+        Set<String> invalid = new HashSet<String>();
+        Map<String, String> referrers = new HashMap<String, String>();
+        Set<String> watched = new HashSet<String>();
+        for (ClassResource resource : resources.values())
+        {
+            String identifier = resource.getIdentifier();
+            watched.add(identifier);
+            String entry = _index.getProperty(KEY_CLASS_PREFIX + identifier);
+            if (entry == null)
+            {
+                invalid.add(identifier);
+                continue;
+            }
+            int separator = entry.indexOf(HASH_SEPARATOR);
+            referrers.put(identifier, entry.substring(separator + 1));
+            if (!entry.substring(0, separator).equals(hash(resource.getFile())))
+            {
+                invalid.add(identifier);
+            }
+        }
+        //sources deleted since the last run, the classes referring to them
+        //have to be recompiled to report the missing class
+        for (String key : _index.stringPropertyNames())
+        {
+            if (!key.startsWith(KEY_CLASS_PREFIX)) continue;
+            String identifier = key.substring(KEY_CLASS_PREFIX.length());
+            if (watched.contains(identifier)) continue;
+            String entry = _index.getProperty(key);
+            referrers.put(identifier, entry.substring(entry.indexOf(HASH_SEPARATOR) + 1));
+            invalid.add(identifier);
+            deleteClassFiles(identifier);
+        }
+        //then the classes referring to them get invalid as well
+        LinkedList<String> toProcess = new LinkedList<String>(invalid);
+        while (!toProcess.isEmpty())
+        {
+            String referrerList = referrers.get(toProcess.removeFirst());
+            if (referrerList == null || referrerList.length() == 0) continue;
+            for (String referrer : referrerList.split(","))
+            {
+                if (invalid.add(referrer))
+                {
+                    toProcess.add(referrer);
+                }
+            }
+        }
+        int restored = 0;
+        for (ClassResource resource : resources.values())
+        {
+            String identifier = resource.getIdentifier();
+            if (invalid.contains(identifier)) continue;
+            if (restoreClasses(identifier, resource.getFile().lastModified(), store))
+            {
+                //the class is present, no compile needed for it
+                resource.setChangedForCompile(false);
+                restored++;
+            }
+        }
+        _log.log(Level.INFO, "[EXT-SCRIPTING] restored {0} classes from the compile cache, {1} need a recompile",
+                new Object[]{restored, resources.size() - restored});
+        return restored;
+    }
+
+    /**
+     * stores the currently compiled classes, only sources whose
+     * content has changed since the last store are written and
+     * the index is only rewritten if one of its entries has changed
+     *
+     * @param resources    the watched resources of the engine
+     * @param dependencies the dependency map of the engine
+     * @param store        the class store holding the compiled classes
+     */
+    public synchronized void store(Map<String, ClassResource> resources, ClassDependencies dependencies,
+                                   CompiledClassStore store)
+    {
+        boolean dirty = false;
+        String classpathSignature = getClasspathSignature();
+        if (!classpathSignature.equals(_index.getProperty(KEY_CLASSPATH)))
+        {
+            _index.setProperty(KEY_CLASSPATH, classpathSignature);
+            dirty = true;
+        }
+        Set<String> storedKeys = new HashSet<String>();
+        for (ClassResource resource : resources.values())
+        {
+            String identifier = resource.getIdentifier();
+            if (resource.needsRecompile() || !store.containsClass(identifier)) continue;
+            String key = KEY_CLASS_PREFIX + identifier;
+            String hash = hash(resource.getFile());
+            String oldEntry = _index.getProperty(key);
+            if (oldEntry == null || !oldEntry.startsWith(hash + HASH_SEPARATOR))
+            {
+                if (!storeClasses(identifier, store)) continue;
+            }
+            StringBuilder entry = new StringBuilder(hash).append(HASH_SEPARATOR);
+            Set<String> referringClasses = dependencies.getReferringClasses(identifier);
+            if (referringClasses != null)
+            {
+                //sorted, otherwise an unchanged entry could differ in its order
+                String separator = "";
+                for (String referringClass : new TreeSet<String>(referringClasses))
+                {
+                    entry.append(separator).append(referringClass);
+                    separator = ",";
+                }
+            }
+            storedKeys.add(key);
+            if (!entry.toString().equals(oldEntry))
+            {
+                _index.setProperty(key, entry.toString());
+                dirty = true;
+            }
+        }
+        //entries of deleted sources and of classes waiting for their recompile
+        for (String key : _index.stringPropertyNames())
+        {
+            if (key.startsWith(KEY_CLASS_PREFIX) && !storedKeys.contains(key))
+            {
+                _index.remove(key);
+                dirty = true;
+            }
+        }
+        if (dirty)
+        {
+            saveIndex();
+        }
+    }
+
+    private boolean restoreClasses(String identifier, long timestamp, CompiledClassStore store)
+    {
+        File[] classFiles = getClassFiles(identifier);
+        if (classFiles == null || classFiles.length == 0) return false;
+        try
+        {
+            for (File classFile : classFiles)
+            {
+                String fileName = classFile.getName();
+                String className = identifier.substring(0, identifier.length() - getSimpleName(identifier).length())
+                        + fileName.substring(0, fileName.length() - ".class".length());
+                store.restore(className, Files.readAllBytes(classFile.toPath()), timestamp);
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] cached classes of {0} could not be read", identifier);
+            return false;
+        }
+    }
+
+    private boolean storeClasses(String identifier, CompiledClassStore store)
+    {
+        deleteClassFiles(identifier);
+        String packageName = (identifier.lastIndexOf('.') == -1) ? "" :
+                identifier.substring(0, identifier.lastIndexOf('.'));
+        try
+        {
+            for (String className : store.getClassNames(packageName, false))
+            {
+                if (!className.equals(identifier) && !className.startsWith(identifier + "$")) continue;
+                byte[] classBytes = store.getClassBytes(className);
+                if (classBytes == null) continue;
+                File classFile = ClassUtils.classNameToFile(_classesDir.getAbsolutePath(), className);
+                classFile.getParentFile().mkdirs();
+                Files.write(classFile.toPath(), classBytes);
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] classes of {0} could not be written into the compile cache",
+                    identifier);
+            return false;
+        }
+    }
+
+    private void deleteClassFiles(String identifier)
+    {
+        File[] oldFiles = getClassFiles(identifier);
+        if (oldFiles == null) return;
+        for (File oldFile : oldFiles)
+        {
+            oldFile.delete();
+        }
+    }
+
+    /*the class file of the top level class and the ones of its inner classes*/
+    private File[] getClassFiles(String identifier)
+    {
+        File classFile = ClassUtils.classNameToFile(_classesDir.getAbsolutePath(), identifier);
+        final String simpleName = getSimpleName(identifier);
+        return classFile.getParentFile().listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                String name = file.getName();
+                return name.equals(simpleName + ".class") || (name.startsWith(simpleName + "$") && name.endsWith(".class"));
+            }
+        });
+    }
+
+    private String getSimpleName(String className)
+    {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private String hash(File sourceFile)
+    {
+        String path = sourceFile.getAbsolutePath();
+        String timestamp = sourceFile.lastModified() + ":";
+        String cached = _hashCache.get(path);
+        if (cached != null && cached.startsWith(timestamp))
+        {
+            return cached.substring(timestamp.length());
+        }
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(Files.readAllBytes(sourceFile.toPath()));
+            StringBuilder retVal = new StringBuilder(hash.length * 2);
+            for (byte hashByte : hash)
+            {
+                retVal.append(Character.forDigit((hashByte >> 4) & 0xF, 16)).append(Character.forDigit(hashByte & 0xF, 16));
+            }
+            _hashCache.put(path, timestamp + retVal);
+            return retVal.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (IOException e)
+        {
+            //unreadable sources never match a cache entry
+            return "";
+        }
+    }
+
+    /**
+     * the cached classes only can be reused if the classpath
+     * they were compiled against is still the same
+     */
+    private String getClasspathSignature()
+    {
+        StringBuilder signature = new StringBuilder();
+        ClassLoader classLoader = ClassUtils.getContextClassLoader();
+        while (classLoader != null)
+        {
+            if (classLoader instanceof URLClassLoader)
+            {
+                URL[] urls = ((URLClassLoader) classLoader).getURLs();
+                if (urls != null)
+                {
+                    for (URL url : urls)
+                    {
+                        signature.append(url.toExternalForm()).append(File.pathSeparatorChar);
+                    }
+                }
+            }
+            classLoader = classLoader.getParent();
+        }
+        Collection<String> additionalClassPath = WeavingContext.getInstance().getConfiguration().getAdditionalClassPath();
+        if (additionalClassPath != null)
+        {
+            for (String classPathEntry : additionalClassPath)
+            {
+                signature.append(classPathEntry).append(File.pathSeparatorChar);
+            }
+        }
+        return String.valueOf(signature.toString().hashCode());
+    }
+
+    private void loadIndex()
+    {
+        File indexFile = new File(_cacheDir, INDEX_FILE);
+        if (!indexFile.exists()) return;
+        InputStream iStream = null;
+        try
+        {
+            iStream = new FileInputStream(indexFile);
+            _index.load(iStream);
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] compile cache index could not be read", e);
+            _index.clear();
+        }
+        finally
+        {
+            close(iStream);
+        }
+    }
+
+    private void saveIndex()
+    {
+        _cacheDir.mkdirs();
+        OutputStream oStream = null;
+        try
+        {
+            oStream = new FileOutputStream(new File(_cacheDir, INDEX_FILE));
+            _index.store(oStream, "ext-scripting compile cache");
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] compile cache index could not be written", e);
+        }
+        finally
+        {
+            close(oStream);
+        }
+    }
+
+    private void close(Closeable closeable)
+    {
+        if (closeable == null) return;
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.SEVERE, "", e);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.engine.compiler;
+
+import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * in memory store for the compiled class files
+ * <p>&nbsp;</p>
+ * the compiler writes its output into the staging side
+ * of the store, the classes become visible to the classloaders
+ * once they are published after the compile cycle.
+ * Optionally the published classes can be written asynchronously
+ * to the disk (for debugging or integrations which scan the target dir)
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class CompiledClassStore
+{
+    static final Logger _log = Logger.getLogger(CompiledClassStore.class.getName());
+
+    /**
+     * bytecode and compile timestamp of a single class
+     */
+    static final class CompiledClass
+    {
+        final byte[] _bytes;
+        final long _timestamp;
+
+        CompiledClass(byte[] bytes, long timestamp)
+        {
+            _bytes = bytes;
+            _timestamp = timestamp;
+        }
+    }
+
+    Map<String, CompiledClass> _staged = new ConcurrentHashMap<String, CompiledClass>();
+    Map<String, CompiledClass> _classes = new ConcurrentHashMap<String, CompiledClass>();
+
+    /*lazily created, we only need a writer thread if the write through is enabled*/
+    volatile ExecutorService _writer = null;
+    volatile boolean _shutdown = false;
+
+    /**
+     * stores the output of the current compile cycle
+     *
+     * @param className the binary name of the class
+     * @param bytes     the bytecode
+     * @param timestamp the start time of the compile which produced the class
+     */
+    public void stage(String className, byte[] bytes, long timestamp)
+    {
+        _staged.put(className, new CompiledClass(bytes, timestamp));
+    }
+
+    /**
+     * puts an already compiled class (from a persistent cache for instance)
+     * directly into the visible part of the store
+     *
+     * @param className the binary name of the class
+     * @param bytes     the bytecode
+     * @param timestamp the timestamp the class is considered to be compiled at
+     */
+    public void restore(String className, byte[] bytes, long timestamp)
+    {
+        _classes.put(className, new CompiledClass(bytes, timestamp));
+    }
+
+    /**
+     * moves the staged classes into the visible part of the store
+     *
+     * @param writeThroughTarget the target dir for the asynchronous write through
+     *                           null if nothing should be written
+     * @return the number of published classes
+     */
+    public int publish(File writeThroughTarget)
+    {
+        int published = 0;
+        for (String className : new ArrayList<String>(_staged.keySet()))
+        {
+            CompiledClass compiledClass = _staged.remove(className);
+            if (compiledClass == null) continue;
+            _classes.put(className, compiledClass);
+            if (writeThroughTarget != null)
+            {
+                writeThrough(writeThroughTarget, className, compiledClass._bytes);
+            }
+            published++;
+        }
+        return published;
+    }
+
+    /**
+     * @param className the binary name of the class
+     * @return the bytecode of the published class or null if not present
+     */
+    public byte[] getClassBytes(String className)
+    {
+        CompiledClass compiledClass = _classes.get(className);
+        return (compiledClass == null) ? null : compiledClass._bytes;
+    }
+
+    /**
+     * @param className the binary name of the class
+     * @return the compile timestamp of the published class, 0 if not present
+     */
+    public long getLastModified(String className)
+    {
+        CompiledClass compiledClass = _classes.get(className);
+        return (compiledClass == null) ? 0 : compiledClass._timestamp;
+    }
+
+    public boolean containsClass(String className)
+    {
+        return _classes.containsKey(className);
+    }
+
+    /**
+     * @param packageName the package name
+     * @param recurse     if true the subpackages are included
+     * @return the names of all published classes in the given package
+     */
+    public Collection<String> getClassNames(String packageName, boolean recurse)
+    {
+        List<String> retVal = new ArrayList<String>();
+        String prefix = (packageName.length() == 0) ? "" : packageName + ".";
+        for (String className : _classes.keySet())
+        {
+            if (!className.startsWith(prefix)) continue;
+            if (!recurse && className.indexOf('.', prefix.length()) != -1) continue;
+            retVal.add(className);
+        }
+        return retVal;
+    }
+
+    public void remove(String className)
+    {
+        _classes.remove(className);
+    }
+
+    public void clear()
+    {
+        _staged.clear();
+        _classes.clear();
+    }
+
+    private void writeThrough(final File target, final String className, final byte[] bytes)
+    {
+        Runnable write = new Runnable()
+        {
+            public void run()
+            {
+                File classFile = ClassUtils.classNameToFile(target.getAbsolutePath(), className);
+                classFile.getParentFile().mkdirs();
+                FileOutputStream oStream = null;
+                try
+                {
+                    oStream = new FileOutputStream(classFile);
+                    oStream.write(bytes);
+                }
+                catch (IOException e)
+                {
+                    _log.log(Level.WARNING, "[EXT-SCRIPTING] class {0} could not be written to disk", className);
+                }
+                finally
+                {
+                    if (oStream != null)
+                    {
+                        try
+                        {
+                            oStream.close();
+                        }
+                        catch (IOException e)
+                        {
+                            _log.log(Level.SEVERE, "", e);
+                        }
+                    }
+                }
+            }
+        };
+        ExecutorService writer = getWriter();
+        if (writer == null)
+        {
+            write.run();
+            return;
+        }
+        try
+        {
+            writer.execute(write);
+        }
+        catch (RejectedExecutionException e)
+        {
+            //shut down in the meantime
+            write.run();
+        }
+    }
+
+    /**
+     * stops the writer thread after the pending writes,
+     * later write throughs are performed on the calling thread
+     */
+    public synchronized void shutdown()
+    {
+        _shutdown = true;
+        if (_writer != null)
+        {
+            _writer.shutdown();
+            _writer = null;
+        }
+    }
+
+    private ExecutorService getWriter()
+    {
+        if (_writer == null)
+        {
+            synchronized (this)
+            {
+                if (_writer == null && !_shutdown)
+                {
+                    _writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread writer = new Thread(runnable, "ExtScript class writer");
+                            writer.setDaemon(true);
+                            return writer;
+                        }
+                    });
+                }
+            }
+        }
+        return _writer;
+    }
+}
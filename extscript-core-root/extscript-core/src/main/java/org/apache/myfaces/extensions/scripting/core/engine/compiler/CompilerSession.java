@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.engine.compiler;
+
+import org.apache.myfaces.extensions.scripting.core.api.Configuration;
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.apache.myfaces.extensions.scripting.core.common.util.ClassLoaderUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * long living compiler session, which keeps the javac instance,
+ * the file manager (and with it the opened jar indexes) and
+ * the resolved classpath over multiple compile cycles.
+ * <p>&nbsp;</p>
+ * The session is rebuilt only if the classloader chain or the
+ * additional classpath has changed since the last compile
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class CompilerSession
+{
+    static final Logger _log = Logger.getLogger(CompilerSession.class.getName());
+
+    final JavaCompiler _javaCompiler = ToolProvider.getSystemJavaCompiler();
+
+    StandardJavaFileManager _fileManager = null;
+    String _classPath = null;
+    /*the classloader chain and additional classpath the session was built for*/
+    List<String> _signature = null;
+
+    public JavaCompiler getJavaCompiler()
+    {
+        return _javaCompiler;
+    }
+
+    /**
+     * @param classLoader the classloader determining the compile classpath
+     * @return a file manager with the classpath already set, reused as long
+     *         as the classpath has not changed
+     * @throws IOException in case the classpath could not be set
+     */
+    public synchronized StandardJavaFileManager getFileManager(ClassLoader classLoader) throws IOException
+    {
+        List<String> signature = buildSignature(classLoader);
+        if (_fileManager != null && signature.equals(_signature))
+        {
+            return _fileManager;
+        }
+        close();
+        _log.info("[EXT-SCRIPTING] initializing compiler session");
+        StandardJavaFileManager fileManager = _javaCompiler.getStandardFileManager(null, Locale.getDefault(), null);
+        String classPath = ClassLoaderUtils.buildClasspath(classLoader);
+        List<File> classPathEntries = new ArrayList<File>();
+        for (String classPathEntry : classPath.split(File.pathSeparator))
+        {
+            if (classPathEntry.length() > 0)
+            {
+                classPathEntries.add(new File(classPathEntry));
+            }
+        }
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPathEntries);
+        _fileManager = fileManager;
+        _classPath = classPath;
+        _signature = signature;
+        return _fileManager;
+    }
+
+    public synchronized String getClassPath()
+    {
+        return _classPath;
+    }
+
+    /**
+     * closes the file manager and with it all opened archives
+     */
+    public synchronized void close()
+    {
+        if (_fileManager == null) return;
+        try
+        {
+            _fileManager.close();
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] closing the compiler file manager failed", e);
+        }
+        _fileManager = null;
+        _classPath = null;
+        _signature = null;
+    }
+
+    /**
+     * cheap fingerprint of everything the classpath is built from,
+     * no url decoding happens here
+     */
+    private List<String> buildSignature(ClassLoader classLoader)
+    {
+        List<String> signature = new ArrayList<String>();
+        Configuration configuration = WeavingContext.getInstance().getConfiguration();
+        File target = configuration.getCompileTarget();
+        if (target != null)
+        {
+            signature.add(target.getAbsolutePath() + ":" + target.exists());
+            signature.add(String.valueOf(configuration.getStagingTarget().exists()));
+        }
+        ClassLoader currentLoader = classLoader;
+        while (currentLoader != null)
+        {
+            signature.add(currentLoader.getClass().getName() + "@" + System.identityHashCode(currentLoader));
+            if (currentLoader instanceof URLClassLoader)
+            {
+                URL[] urls = ((URLClassLoader) currentLoader).getURLs();
+                if (urls != null)
+                {
+                    for (URL url : urls)
+                    {
+                        signature.add(url.toExternalForm());
+                    }
+                }
+            }
+            currentLoader = currentLoader.getParent();
+        }
+        List<String> additionalClassPath = configuration.getAdditionalClassPath();
+        if (additionalClassPath != null)
+        {
+            signature.addAll(additionalClassPath);
+        }
+        return signature;
+    }
+}
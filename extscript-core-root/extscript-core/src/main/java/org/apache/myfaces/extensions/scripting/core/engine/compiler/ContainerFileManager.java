@@ -18,14 +18,31 @@
  */
 package org.apache.myfaces.extensions.scripting.core.engine.compiler;
 
+import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * File manager, enforced by the Java Compiler API
  * which handles the source files
+ * <p>&nbsp;</p>
+ * the class output of the compiler is kept in memory
+ * and staged into the class store, the already published
+ * classes of the store are served to the compiler as
+ * part of the classpath
  *
  * @author Werner Punz (latest modification by $Author$)
  * @version $Revision$ $Date$
@@ -35,11 +52,97 @@ public class ContainerFileManager extends ForwardingJavaFileManager<StandardJava
 
     String _classPath = null;
 
-    public ContainerFileManager(StandardJavaFileManager standardJavaFileManager) {
+    final CompiledClassStore _classStore;
+    /*the compile start, all classes of this run get this timestamp*/
+    final long _compileStart = System.currentTimeMillis();
+
+    public ContainerFileManager(StandardJavaFileManager standardJavaFileManager, CompiledClassStore classStore) {
         super(standardJavaFileManager);
+        _classStore = classStore;
     }
 
     public Iterable<? extends JavaFileObject> getJavaFileObjects(File... files) {
         return fileManager.getJavaFileObjects(files);
     }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) throws IOException {
+        if (location != StandardLocation.CLASS_OUTPUT || kind != JavaFileObject.Kind.CLASS) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+        return new MemoryClassFile(className, null);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                                         boolean recurse) throws IOException {
+        Iterable<JavaFileObject> standardFiles = super.list(location, packageName, kinds, recurse);
+        if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+            return standardFiles;
+        }
+        //the in memory classes go first, the disk might hold outdated copies
+        List<JavaFileObject> retVal = new ArrayList<JavaFileObject>();
+        for (String className : _classStore.getClassNames(packageName, recurse)) {
+            byte[] bytes = _classStore.getClassBytes(className);
+            if (bytes != null) {
+                retVal.add(new MemoryClassFile(className, bytes));
+            }
+        }
+        if (retVal.isEmpty()) {
+            return standardFiles;
+        }
+        for (JavaFileObject standardFile : standardFiles) {
+            retVal.add(standardFile);
+        }
+        return retVal;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof MemoryClassFile) {
+            return ((MemoryClassFile) file)._className;
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    /**
+     * class file which lives in memory, either a published
+     * class from the store or an output of the current compile
+     */
+    class MemoryClassFile extends SimpleJavaFileObject {
+
+        final String _className;
+        final byte[] _bytes;
+
+        MemoryClassFile(String className, byte[] bytes) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            _className = className;
+            _bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            if (_bytes == null) {
+                throw new IOException("class " + _className + " not yet compiled");
+            }
+            return new ByteArrayInputStream(_bytes);
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    _classStore.stage(_className, toByteArray(), _compileStart);
+                }
+            };
+        }
+
+        @Override
+        public long getLastModified() {
+            return (_bytes == null) ? _compileStart : _classStore.getLastModified(_className);
+        }
+    }
 }
@@ -30,9 +30,11 @@ import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -53,13 +55,19 @@ import static org.apache.myfaces.extensions.scripting.core.engine.api.CompilerCo
 public class JSR199Compiler implements org.apache.myfaces.extensions.scripting.core.engine.api.Compiler
 {
 
-    javax.tools.JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
-    StandardJavaFileManager fileManager = null;
+    /*keeps javac, the file manager and the classpath between the compile cycles*/
+    final CompilerSession _session;
 
 
     public JSR199Compiler()
+    {
+        this(new CompilerSession());
+    }
+
+    public JSR199Compiler(CompilerSession session)
     {
         super();
+        _session = session;
     }
 
     /**
@@ -76,19 +84,65 @@ public class JSR199Compiler implements org.apache.myfaces.extensions.scripting.c
      * @return the collected compilation results as bundle
      */
     public CompilationResult compile(File sourceRoot, File destination, ClassLoader loader)   {
+        return compile(Arrays.asList(sourceRoot.getAbsolutePath()), destination, loader);
+    }
+
+    /**
+     * full compile of all whitelisted java sources in one javac run
+     * over all given source roots
+     *
+     * @param sourceRoots the roots for all java sources to be compiled
+     * @param destination the target dir for the compiled classes
+     * @param loader      the classpath holder for the compilation
+     * @return the collected compilation results as bundle
+     */
+    public CompilationResult compile(Collection<String> sourceRoots, File destination, ClassLoader loader)   {
             WeavingContext context = WeavingContext.getInstance();
             Configuration configuration = context.getConfiguration();
-            destination.mkdirs();
-            fileManager =  javaCompiler.getStandardFileManager(new
-                            DiagnosticCollector<JavaFileObject>(), Locale.getDefault(), null);
-
-            DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
 
             getLog().info("[EXT-SCRIPTING] Doing a full recompile");
             
             List<File> sourceFiles = FileUtils.fetchSourceFiles(configuration.getWhitelistedSourceDirs
                     (ENGINE_TYPE_JSF_JAVA), JAVA_WILDCARD);
-            
+
+            return compileFiles(sourceRoots, sourceFiles, destination);
+    }
+
+    /**
+     * incremental compile, only the given source files are handed over to javac,
+     * all other classes are resolved from the existing compile target
+     * over the classpath
+     *
+     * @param sourceRoots the source roots (needed for the source path)
+     * @param sourceFiles the files to be compiled
+     * @param destination the target dir for the compiled classes
+     * @param loader      the classpath holder for the compilation
+     * @return the collected compilation results as bundle
+     */
+    public CompilationResult compile(Collection<String> sourceRoots, Collection<File> sourceFiles, File destination,
+                                     ClassLoader loader)   {
+            getLog().log(Level.INFO, "[EXT-SCRIPTING] Doing an incremental compile of {0} files",
+                    String.valueOf(sourceFiles.size()));
+            return compileFiles(sourceRoots, new ArrayList<File>(sourceFiles), destination);
+    }
+
+    private CompilationResult compileFiles(Collection<String> sourceRoots, List<File> sourceFiles, File destination) {
+            destination.mkdirs();
+            StandardJavaFileManager fileManager;
+            try
+            {
+                fileManager = _session.getFileManager(ClassLoaderUtils.getDefaultClassLoader());
+            }
+            catch (IOException e)
+            {
+                getLog().log(Level.SEVERE, "[EXT-SCRIPTING] compiler classpath could not be set", e);
+                CompilationResult result = new CompilationResult(e.toString());
+                result.registerError(new CompilationMessage(-1, e.toString()));
+                return result;
+            }
+
+            DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<JavaFileObject>();
+
             HashSet<String> alreadyProcessed = new HashSet<String>();
             Iterator<File> sourceIt = sourceFiles.iterator();
             while(sourceIt.hasNext()) {
@@ -109,14 +163,20 @@ public class JSR199Compiler implements org.apache.myfaces.extensions.scripting.c
                     getLog().log(Level.WARNING, "[EXT-SCRIPTING] Source file with path {0} does not exist it might cause an error in the compilation process", sourceFile.getAbsolutePath());
                 }
             }
+            if (sourceFiles.isEmpty())
+            {
+                return new CompilationResult("");
+            }
             Iterable<? extends JavaFileObject> fileObjects = fileManager.getJavaFileObjects(sourceFiles.toArray(new File[sourceFiles.size()]));
-            String[] options = new String[]{JC_CLASSPATH, /*fileManager.getClassPath()*/
-                                            ClassLoaderUtils.buildClasspath(ClassLoaderUtils.getDefaultClassLoader())
-                    , JC_TARGET_PATH,
+            //the classpath already is set on the session file manager
+            String[] options = new String[]{JC_TARGET_PATH,
                                             destination.getAbsolutePath(), JC_SOURCEPATH,
-            sourceRoot.getAbsolutePath(), JC_DEBUG};
+            buildSourcePath(sourceRoots), JC_DEBUG};
 
-            javaCompiler.getTask(null, fileManager, diagnosticCollector, Arrays.asList(options), null, fileObjects).call();
+            //the class output goes into the in memory class store
+            ContainerFileManager containerFileManager = new ContainerFileManager(fileManager,
+                    WeavingContext.getInstance().getClassStore());
+            _session.getJavaCompiler().getTask(null, containerFileManager, diagnosticCollector, Arrays.asList(options), null, fileObjects).call();
 
 
             CompilationResult result =  handleDiagnostics(diagnosticCollector);
@@ -126,6 +186,20 @@ public class JSR199Compiler implements org.apache.myfaces.extensions.scripting.c
 
     }
 
+    private String buildSourcePath(Collection<String> sourceRoots)
+    {
+        StringBuilder sourcePath = new StringBuilder();
+        for (String sourceRoot : sourceRoots)
+        {
+            if (sourcePath.length() > 0)
+            {
+                sourcePath.append(File.pathSeparatorChar);
+            }
+            sourcePath.append(new File(sourceRoot).getAbsolutePath());
+        }
+        return sourcePath.toString();
+    }
+
     /**
      * internal diagnostics handler
      * which just logs the errors
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan;
+
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.api.DependencyRegistry;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.api.DependencyScanner;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassScanUtils;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassScanVisitor;
+import org.objectweb.asm.ClassReader;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A dependency scanner which works purely on the class file bytes
+ * <p>&nbsp;</p>
+ * Other than the {@link StandardDependencyScanner} no class is loaded,
+ * the hierarchy is taken from the super class and interface entries
+ * of the class files. The loader only serves the bytes
+ * via getResourceAsStream, the throw away classloader resolves them
+ * from the in memory class store, the compile target and
+ * its parent in this order, so no class ever gets defined by a scan.
+ * <p>&nbsp;</p>
+ * This class holds no scan state and can be used by several
+ * scan threads at once
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class BytecodeDependencyScanner implements DependencyScanner {
+
+    static final Logger _logger = Logger.getLogger(BytecodeDependencyScanner.class.getName());
+
+    public final void fetchDependencies(ClassLoader loader, Integer engineType, String className, DependencyRegistry registry) {
+        ClassScanVisitor cp = new ClassScanVisitor();
+        cp.setEngineType(engineType);
+        cp.setRootClass(className);
+        cp.setDependencyRegistry(registry);
+
+        //walks the class, its parents and interfaces outside of the standard namespaces
+        Set<String> visited = new HashSet<String>();
+        LinkedList<String> toScan = new LinkedList<String>();
+        toScan.add(className);
+        visited.add(className);
+        while (!toScan.isEmpty()) {
+            String currentClass = toScan.removeFirst();
+            byte[] classBytes = ClassScanUtils.readClassBytes(loader, currentClass);
+            if (classBytes == null) {
+                if (currentClass.equals(className)) {
+                    _logger.log(Level.WARNING, "[EXT-SCRIPTING] no class file found for {0}", className);
+                }
+                continue;
+            }
+            ClassReader cr = new ClassReader(classBytes);
+            cr.accept(cp, 0);
+
+            addParent(cr.getSuperName(), visited, toScan);
+            for (String currentInterface : cr.getInterfaces()) {
+                addParent(currentInterface, visited, toScan);
+            }
+        }
+        registry.flush(engineType);
+    }
+
+    private void addParent(String internalName, Set<String> visited, LinkedList<String> toScan) {
+        if (internalName == null) {
+            return;
+        }
+        String parent = internalName.replace('/', '.');
+        if (ClassScanUtils.isStandardNamespace(parent) || !visited.add(parent)) {
+            return;
+        }
+        toScan.add(parent);
+    }
+}
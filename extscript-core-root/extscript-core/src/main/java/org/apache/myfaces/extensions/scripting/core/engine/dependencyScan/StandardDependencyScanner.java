@@ -31,8 +31,9 @@ import java.util.logging.Logger;
 
 /**
  * A dependency scanner for
- * our classes. This class is thread save on object level
- * and can be used as a singleton
+ * our classes. This class holds no scan state, every
+ * call gets its own visitor, so it can be used as a singleton
+ * and by several scan threads at once
  * <p>&nbsp;</p>
  *
  * @author Werner Punz (latest modification by $Author$)
@@ -40,18 +41,18 @@ import java.util.logging.Logger;
  */
 public class StandardDependencyScanner implements DependencyScanner
 {
-    final ClassScanVisitor _cp = new ClassScanVisitor();
     Logger _logger = Logger.getLogger(this.getClass().getName());
 
     public StandardDependencyScanner() {
 
     }
 
-    public synchronized final void fetchDependencies(ClassLoader loader, Integer engineType, String className, DependencyRegistry registry) {
-        _cp.setEngineType(engineType);
-        _cp.setRootClass(className);
-        _cp.setDependencyRegistry(registry);
-        scanClass(loader, className);
+    public final void fetchDependencies(ClassLoader loader, Integer engineType, String className, DependencyRegistry registry) {
+        ClassScanVisitor cp = new ClassScanVisitor();
+        cp.setEngineType(engineType);
+        cp.setRootClass(className);
+        cp.setDependencyRegistry(registry);
+        scanClass(cp, loader, className);
         registry.flush(engineType);
     }
 
@@ -62,10 +63,11 @@ public class StandardDependencyScanner implements DependencyScanner
      * (maybe in the long run we will add interfaces and annotations as well
      * but for now we will leave them away for speed reasons)
      *
+     * @param cp        the visitor of the current scan
      * @param loader    the classLoader which should be used for the hierarchy scanning
      * @param className the className which has to be investigated
      */
-    private void scanClass(ClassLoader loader, String className) {
+    private void scanClass(ClassScanVisitor cp, ClassLoader loader, String className) {
         //we now have to fetch the parent hierarchy
 
         try {
@@ -73,19 +75,19 @@ public class StandardDependencyScanner implements DependencyScanner
             if (toCheck == null) {
                 return;
             }
-            scanCurrentClass(loader, className);
+            scanCurrentClass(cp, loader, className);
 
             //we scan the hierarchy because we might have compiled-uncompiled-compiled connections, the same goes for the interfaces
             //the basic stuff can be covered by our class scanning but for more advanced usecase we have to walk the entire hierarchy per class!
-            scanHierarchy(loader, toCheck);
+            scanHierarchy(cp, loader, toCheck);
             //our asm code normally covers this but since the scanner has to work outside of asm we do it twice, the same goes for the hierarchy
-            scanInterfaces(loader, toCheck);
+            scanInterfaces(cp, loader, toCheck);
         } catch (ClassNotFoundException e) {
             _logger.log(Level.SEVERE, "DefaultDependencyScanner.scanClass() ", e);
         }
     }
 
-    private void scanInterfaces(ClassLoader loader, Class toCheck) {
+    private void scanInterfaces(ClassScanVisitor cp, ClassLoader loader, Class toCheck) {
         Class[] interfaces = toCheck.getInterfaces();
         if (interfaces == null || interfaces.length == 0) {
             return;
@@ -95,12 +97,12 @@ public class StandardDependencyScanner implements DependencyScanner
             if (ClassScanUtils.isStandardNamespace(currentInterface.getName())) {
                 continue;
             }
-            scanCurrentClass(loader, currentInterface.getName());
+            scanCurrentClass(cp, loader, currentInterface.getName());
 
             //We scan also our parent interfaces to get a full coverage
             //but since interfaces do not implement anything we can cover
             //the parents
-            scanHierarchy(loader, currentInterface);
+            scanHierarchy(cp, loader, currentInterface);
         }
     }
 
@@ -115,14 +117,15 @@ public class StandardDependencyScanner implements DependencyScanner
      * so we do not process any annotation inheritance on this level
      * we will add the feature later
      *
+     * @param cp             the visitor of the current scan
      * @param loader         the infrastructural classloader
      * @param toCheck        the class which needs to be checked
      */
-    private void scanHierarchy(ClassLoader loader, Class toCheck) {
+    private void scanHierarchy(ClassScanVisitor cp, ClassLoader loader, Class toCheck) {
         Class parent = toCheck.getSuperclass();
 
         while (parent != null && !ClassScanUtils.isStandardNamespace(parent.getName())) {
-            scanCurrentClass(loader, parent.getName());
+            scanCurrentClass(cp, loader, parent.getName());
             parent = parent.getSuperclass();
         }
     }
@@ -130,14 +133,15 @@ public class StandardDependencyScanner implements DependencyScanner
     /**
      * scans one level of the inheritance hierarchy
      *
+     * @param cp               the visitor of the current scan
      * @param loader           the classLoader which should be used for the hierarchy scanning
      * @param currentClassName the className which has to be investigated
      */
-    private void scanCurrentClass(ClassLoader loader, String currentClassName) {
+    private void scanCurrentClass(ClassScanVisitor cp, ClassLoader loader, String currentClassName) {
         ClassReader cr;
         try {
             cr = new ExtendedClassReader(loader, currentClassName);
-            cr.accept(_cp, 0);
+            cr.accept(cp, 0);
         } catch (IOException e) {
             _logger.log(Level.SEVERE, "scanCurrentClass() ", e);
         }
@@ -18,34 +18,56 @@
  */
 package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * class dependency maps
  * note this class is thread save
+ * <p>&nbsp;</p>
+ * the dependencies are kept as bidirectional graph, the class names
+ * are interned into int ids and both directions are stored as sorted
+ * int arrays per class. The arrays never are modified, a change replaces
+ * them, hence readers can iterate without locking while the
+ * writers are serialized.
  */
 public class ClassDependencies {
 
+    private static final int[] NO_EDGES = new int[0];
+
+    /**
+     * class name to node id
+     */
+    private final ConcurrentHashMap<String, Integer> _ids = new ConcurrentHashMap<String, Integer>();
+
     /**
-     * reverse index which shows which
-     * a class name and which classes in the system depend on that
-     * classname
-     * <p>&nbsp;</p>
-     * <p>&nbsp;</p>
-     * the key is a dependency a class has the _value is a set of classes which depend on the current class
+     * node id to class name
      */
-    private Map<String, Set<String>> reverseIndex = new ConcurrentHashMap<String, Set<String>>();
+    private volatile AtomicReferenceArray<String> _names = new AtomicReferenceArray<String>(64);
 
-    public void addDependency(String referencingClass, String referencedClass) {
-        Set<String> reverseDependencies = getReverseDependencies(referencedClass);
-        reverseDependencies.add(referencingClass);
+    /**
+     * forward edges, the classes a class references
+     */
+    private volatile AtomicReferenceArray<int[]> _forward = new AtomicReferenceArray<int[]>(64);
+
+    /**
+     * reverse edges, the classes which depend on a class
+     */
+    private volatile AtomicReferenceArray<int[]> _reverse = new AtomicReferenceArray<int[]>(64);
+
+    private int _nodeCount = 0;
+
+    public synchronized void addDependency(String referencingClass, String referencedClass) {
+        int referrer = intern(referencingClass);
+        int dependency = intern(referencedClass);
+        _forward.set(referrer, addEdge(_forward.get(referrer), dependency));
+        _reverse.set(dependency, addEdge(_reverse.get(dependency), referrer));
     }
 
     /**
@@ -55,7 +77,7 @@ public class ClassDependencies {
      * @param referencingClass  the referencing class of this dependency
      * @param referencedClasses the referenced class of this dependency
      */
-    public void addDependencies(String referencingClass, Collection<String> referencedClasses) {
+    public synchronized void addDependencies(String referencingClass, Collection<String> referencedClasses) {
         for (String referencedClass : referencedClasses) {
             addDependency(referencingClass, referencedClass);
         }
@@ -66,8 +88,15 @@ public class ClassDependencies {
      *
      * @param clazz the referenced class to be deleted
      */
-    public void removeReferenced(String clazz) {
-        reverseIndex.remove(clazz);
+    public synchronized void removeReferenced(String clazz) {
+        Integer dependency = _ids.get(clazz);
+        if (dependency == null) {
+            return;
+        }
+        for (int referrer : edges(_reverse, dependency)) {
+            _forward.set(referrer, removeEdge(_forward.get(referrer), dependency));
+        }
+        _reverse.set(dependency, NO_EDGES);
     }
 
     /**
@@ -77,32 +106,175 @@ public class ClassDependencies {
      *
      * @param clazz the referencing class to delete
      */
-    @SuppressWarnings("unused")
-    public void removeReferrer(String clazz) {
-        List<String> emptyReferences = new ArrayList<String>(reverseIndex.size());
-        for (Map.Entry<String, Set<String>> entry : reverseIndex.entrySet()) {
-            Set<String> entrySet = entry.getValue();
-            entrySet.remove(clazz);
-            if (entrySet.isEmpty()) {
-                emptyReferences.add(entry.getKey());
-            }
+    public synchronized void removeReferrer(String clazz) {
+        Integer referrer = _ids.get(clazz);
+        if (referrer == null) {
+            return;
         }
-        for (String toDelete : emptyReferences) {
-            removeReferenced(toDelete);
+        for (int dependency : edges(_forward, referrer)) {
+            _reverse.set(dependency, removeEdge(_reverse.get(dependency), referrer));
         }
+        _forward.set(referrer, NO_EDGES);
     }
 
+    /**
+     * @param referencedClass the referenced class
+     * @return a snapshot of the classes directly referring to the class, null if there are none
+     */
     public Set<String> getReferringClasses(String referencedClass) {
-        return reverseIndex.get(referencedClass);
+        Integer dependency = _ids.get(referencedClass);
+        if (dependency == null) {
+            return null;
+        }
+        int[] referrers = edges(_reverse, dependency);
+        return (referrers.length == 0) ? null : toNames(referrers);
+    }
+
+    /**
+     * @param referencingClass the referencing class
+     * @return a snapshot of the classes the class references directly, null if there are none
+     */
+    public Set<String> getDependencies(String referencingClass) {
+        Integer referrer = _ids.get(referencingClass);
+        if (referrer == null) {
+            return null;
+        }
+        int[] dependencies = edges(_forward, referrer);
+        return (dependencies.length == 0) ? null : toNames(dependencies);
+    }
+
+    /**
+     * walks the reverse edges breadth first
+     *
+     * @param referencedClasses the start classes
+     * @return all classes which directly or indirectly depend on one of the given classes,
+     *         the start classes themselves are not part of the result unless they are in a cycle
+     */
+    public Set<String> getTransitiveReferringClasses(Collection<String> referencedClasses) {
+        AtomicReferenceArray<int[]> reverse = _reverse;
+        BitSet visited = new BitSet();
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        for (String referencedClass : referencedClasses) {
+            Integer start = _ids.get(referencedClass);
+            if (start == null) {
+                continue;
+            }
+            if (tail == queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            queue[tail++] = start;
+        }
+        BitSet found = new BitSet();
+        while (head < tail) {
+            int current = queue[head++];
+            for (int referrer : edges(reverse, current)) {
+                found.set(referrer);
+                if (visited.get(referrer)) {
+                    continue;
+                }
+                visited.set(referrer);
+                if (tail == queue.length) {
+                    queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+                queue[tail++] = referrer;
+            }
+        }
+        Set<String> retVal = new HashSet<String>(found.cardinality() * 2);
+        AtomicReferenceArray<String> names = _names;
+        for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+            retVal.add(names.get(id));
+        }
+        return retVal;
+    }
+
+    /**
+     * @return a snapshot of all classes which are referenced by at least one class
+     */
+    public Set<String> getReferencedClasses() {
+        AtomicReferenceArray<int[]> reverse = _reverse;
+        AtomicReferenceArray<String> names = _names;
+        Set<String> retVal = new HashSet<String>();
+        for (int id = 0; id < reverse.length(); id++) {
+            int[] referrers = reverse.get(id);
+            if (referrers != null && referrers.length > 0) {
+                retVal.add(names.get(id));
+            }
+        }
+        return retVal;
+    }
+
+    private int intern(String className) {
+        Integer id = _ids.get(className);
+        if (id != null) {
+            return id;
+        }
+        int newId = _nodeCount++;
+        if (newId == _names.length()) {
+            _names = grow(_names);
+            _forward = grow(_forward);
+            _reverse = grow(_reverse);
+        }
+        _names.set(newId, className);
+        _ids.put(className, newId);
+        return newId;
+    }
+
+    private static <T> AtomicReferenceArray<T> grow(AtomicReferenceArray<T> array) {
+        AtomicReferenceArray<T> retVal = new AtomicReferenceArray<T>(array.length() * 2);
+        for (int cnt = 0; cnt < array.length(); cnt++) {
+            retVal.set(cnt, array.get(cnt));
+        }
+        return retVal;
+    }
+
+    private static int[] edges(AtomicReferenceArray<int[]> index, int id) {
+        if (id >= index.length()) {
+            return NO_EDGES;
+        }
+        int[] edges = index.get(id);
+        return (edges == null) ? NO_EDGES : edges;
+    }
+
+    /*the edge arrays are sorted, a change always creates a new array*/
+    private static int[] addEdge(int[] edges, int id) {
+        if (edges == null) {
+            return new int[]{id};
+        }
+        int pos = Arrays.binarySearch(edges, id);
+        if (pos >= 0) {
+            return edges;
+        }
+        pos = -(pos + 1);
+        int[] retVal = new int[edges.length + 1];
+        System.arraycopy(edges, 0, retVal, 0, pos);
+        retVal[pos] = id;
+        System.arraycopy(edges, pos, retVal, pos + 1, edges.length - pos);
+        return retVal;
+    }
+
+    private static int[] removeEdge(int[] edges, int id) {
+        if (edges == null) {
+            return NO_EDGES;
+        }
+        int pos = Arrays.binarySearch(edges, id);
+        if (pos < 0) {
+            return edges;
+        }
+        int[] retVal = new int[edges.length - 1];
+        System.arraycopy(edges, 0, retVal, 0, pos);
+        System.arraycopy(edges, pos + 1, retVal, pos, edges.length - pos - 1);
+        return retVal;
     }
 
-    private Set<String> getReverseDependencies(String dependency) {
-        Set<String> dependencies = reverseIndex.get(dependency);
-        if (dependencies == null) {
-            dependencies = Collections.synchronizedSet(new HashSet<String>());
-            reverseIndex.put(dependency, dependencies);
+    private Set<String> toNames(int[] ids) {
+        AtomicReferenceArray<String> names = _names;
+        Set<String> retVal = new HashSet<String>(ids.length * 2);
+        for (int id : ids) {
+            retVal.add(names.get(id));
         }
-        return dependencies;
+        return Collections.unmodifiableSet(retVal);
     }
 
 }
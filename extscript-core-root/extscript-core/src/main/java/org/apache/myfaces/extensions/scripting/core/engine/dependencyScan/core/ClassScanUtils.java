@@ -18,6 +18,12 @@
  */
 package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * @author Werner Punz (latest modification by $Author$)
  * @version $Revision$ $Date$
@@ -26,6 +32,8 @@ package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core;
  */
 public class ClassScanUtils {
 
+    static final Logger _logger = Logger.getLogger(ClassScanUtils.class.getName());
+
     private static final String DOMAIN_JAVA = "java.";
     private static final String DOMAIN_JAVAX = "javax.";
     private static final String DOMAIN_COM_SUN = "com.sun";
@@ -74,5 +82,36 @@ public class ClassScanUtils {
                 ((in.startsWith(DOMAIN_APACHE) &&
                         !in.startsWith(DOMAIN_MYFACES)));
     }
-   
+
+    /**
+     * reads the class file of the given class
+     *
+     * @param loader    the loader serving the class file
+     * @param className the class name
+     * @return the bytes of the class file or null if it cannot be found
+     */
+    public static byte[] readClassBytes(ClassLoader loader, String className) {
+        InputStream in = loader.getResourceAsStream(className.replace('.', '/') + ".class");
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            _logger.log(Level.SEVERE, "readClassBytes() ", e);
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                _logger.log(Level.FINEST, "readClassBytes() ", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.registry;
+
+import org.apache.myfaces.extensions.scripting.core.common.util.StringUtils;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.api.DependencyRegistry;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * registry sink for one scan worker
+ * <p>&nbsp;</p>
+ * The dependencies are checked against the filters of the
+ * engine registry and collected per root class without any
+ * locking, the flush at the end of every class scan hands them
+ * over to the shared dependency map in one step.
+ * Instances must not be shared between threads.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class BufferedDependencyRegistry implements DependencyRegistry
+{
+    final ExternalFilterDependencyRegistry _filterRegistry;
+    final ClassDependencies _dependencyMap;
+    final Map<String, Set<String>> _dependencies = new HashMap<String, Set<String>>();
+
+    /**
+     * @param filterRegistry the engine registry which provides the filters
+     * @param dependencyMap  the dependency map which receives the dependencies on flush
+     */
+    public BufferedDependencyRegistry(ExternalFilterDependencyRegistry filterRegistry, ClassDependencies dependencyMap) {
+        _filterRegistry = filterRegistry;
+        _dependencyMap = dependencyMap;
+    }
+
+    public void addDependency(Integer engineType, String rootClass, String currentlyVisitedClass, String dependency) {
+        if (StringUtils.isBlank(dependency) || StringUtils.isBlank(rootClass)) {
+            return;
+        }
+        if (currentlyVisitedClass != null && currentlyVisitedClass.equals(dependency)) {
+            return;
+        }
+        Set<String> dependencies = _dependencies.get(rootClass);
+        if (dependencies == null) {
+            dependencies = new HashSet<String>();
+            _dependencies.put(rootClass, dependencies);
+        } else if (dependencies.contains(dependency)) {
+            //already passed the filters
+            return;
+        }
+        if (!_filterRegistry.isAllowed(engineType, dependency)) {
+            return;
+        }
+        dependencies.add(dependency);
+    }
+
+    public void flush(Integer engineType) {
+        for (Map.Entry<String, Set<String>> entry : _dependencies.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                _dependencyMap.addDependencies(entry.getKey(), entry.getValue());
+            }
+        }
+        _dependencies.clear();
+    }
+}
@@ -27,8 +27,8 @@ import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.filter
 import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.filter.StandardNamespaceFilter;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * registry facade which is used to track our dependencies
@@ -37,7 +37,8 @@ import java.util.List;
  */
 public class DependencyRegistryImpl implements ExternalFilterDependencyRegistry
 {
-    List<ClassFilter> _filters = new LinkedList<ClassFilter>();
+    //read concurrently by the scan workers
+    volatile List<ClassFilter> _filters = new CopyOnWriteArrayList<ClassFilter>();
 
     ClassDependencies _dependencMap;
 
@@ -62,11 +63,12 @@ public class DependencyRegistryImpl implements ExternalFilterDependencyRegistry
      * Clears the entire filter map
      */
     public void clearFilters() {
-        _filters = new LinkedList<ClassFilter>();
+        List<ClassFilter> filters = new CopyOnWriteArrayList<ClassFilter>();
 
-        _filters.add(new ScanIdentifierFilter(_engineType, ScriptingConst.ENGINE_TYPE_JSF_ALL,
+        filters.add(new ScanIdentifierFilter(_engineType, ScriptingConst.ENGINE_TYPE_JSF_ALL,
                 ScriptingConst.ENGINE_TYPE_JSF_NO_ENGINE));
-        _filters.add(new StandardNamespaceFilter());
+        filters.add(new StandardNamespaceFilter());
+        _filters = filters;
     }
 
     /**
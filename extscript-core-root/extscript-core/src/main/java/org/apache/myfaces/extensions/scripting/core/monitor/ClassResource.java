@@ -21,9 +21,7 @@ package org.apache.myfaces.extensions.scripting.core.monitor;
 
 import org.apache.myfaces.extensions.scripting.core.api.ScriptingConst;
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
-import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.TaintedEvent;
 import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
-import org.apache.myfaces.extensions.scripting.core.common.util.FileUtils;
 
 import java.io.File;
 import java.util.Collection;
@@ -50,10 +48,14 @@ public class ClassResource extends WatchedResource
     //caching the info however probably is faster
     volatile Class _aClass = null;
     volatile File _sourceFile;
+    /*the identifier is derived from the source file, computed once per file*/
+    volatile String _identifier = null;
 
     volatile int _scriptingEngine = ScriptingConst.ENGINE_TYPE_JSF_NO_ENGINE;
     /*non initial change for delta change investigation*/
     volatile boolean changedForCompile = false;
+    /*the state sets of the owning engine, null for unwatched resources*/
+    volatile ResourceStates _states = null;
 
 
     public String getSourceFile()
@@ -69,10 +71,10 @@ public class ClassResource extends WatchedResource
     {
         Collection<String> sourceRoots = WeavingContext.getInstance().getConfiguration().getSourceDirs(_scriptingEngine);
         String fileDir = _sourceFile.getAbsolutePath();
-        fileDir = fileDir.replaceAll("\\\\", "/");
+        fileDir = fileDir.replace('\\', '/');
         for (String sourceRoot : sourceRoots)
         {
-            sourceRoot = sourceRoot.replaceAll("\\\\", "/");
+            sourceRoot = sourceRoot.replace('\\', '/');
             if (fileDir.startsWith(sourceRoot))
             {
                 return sourceRoot;
@@ -90,10 +92,13 @@ public class ClassResource extends WatchedResource
      */
     public String getIdentifier()
     {
-        String targetDir = WeavingContext.getInstance().getConfiguration().getCompileTarget().getAbsolutePath();
-        String className = ClassUtils.relativeFileToClassName(getSourceFile());
-
-        return className;
+        String identifier = _identifier;
+        if (identifier == null)
+        {
+            identifier = ClassUtils.relativeFileToClassName(getSourceFile());
+            _identifier = identifier;
+        }
+        return identifier;
     }
 
     public void setTainted(boolean value)
@@ -105,15 +110,28 @@ public class ClassResource extends WatchedResource
             //TODO add logging event here
             logger.info("[EXT-SCRIPTING] tainting " + getSourceFile());
             WeavingContext.getInstance().addTaintLogEntry(this);
-            WeavingContext.getInstance().gcTaintLog();
-            WeavingContext.getInstance().sendWeavingEvent(new TaintedEvent(this));
+            //sent as one batch at the end of the monitor cycle
+            WeavingContext.getInstance().getEventBus().addTainted(this);
         }
-        tainted = value;
+        updateTainted(value);
     }
 
     public void setTainted(boolean value, boolean noLog)
+    {
+        updateTainted(value);
+    }
+
+    /**
+     * the monitor taints and the request threads untaint concurrently,
+     * flag and state set are updated in one step so they cannot disagree
+     *
+     * @param value the new tainted state
+     */
+    private synchronized void updateTainted(boolean value)
     {
         tainted = value;
+        ResourceStates states = _states;
+        if (states != null) states.setTainted(this, value);
     }
     /**
      * @return true if the source file has been modified compared to its classfile
@@ -125,11 +143,18 @@ public class ClassResource extends WatchedResource
 
     public boolean needsRecompile()
     {
-        String targetDir = WeavingContext.getInstance().getConfiguration().getCompileTarget().getAbsolutePath();
-        String className = ClassUtils.relativeFileToClassName(getSourceFile());
-        className = targetDir + File.separator + className.replaceAll("\\.", FileUtils.getFileSeparatorForRegex()) + ".class";
-        File targetClass = new File(className);
-        return !targetClass.exists() || targetClass.lastModified() < _sourceFile.lastModified();
+        String className = getIdentifier();
+        long sourceModified = _sourceFile.lastModified();
+        //the java classes are kept in memory
+        long compiled = WeavingContext.getInstance().getClassStore().getLastModified(className);
+        if (compiled != 0)
+        {
+            return compiled < sourceModified;
+        }
+        File targetClass = new File(WeavingContext.getInstance().getConfiguration().getCompileTarget(),
+                className.replace('.', File.separatorChar) + ".class");
+        //lastModified is 0 for a non existing file
+        return targetClass.lastModified() < sourceModified;
     }
 
     public boolean stillExists()
@@ -142,9 +167,24 @@ public class ClassResource extends WatchedResource
         return changedForCompile;
     }
 
-    public void setChangedForCompile(boolean changedForCompile)
+    public synchronized void setChangedForCompile(boolean changedForCompile)
     {
         this.changedForCompile = changedForCompile;
+        ResourceStates states = _states;
+        if (states != null) states.setChangedForCompile(this, changedForCompile);
+    }
+
+    /**
+     * attaches the resource to the state sets of its engine
+     *
+     * @param states the state sets, null to detach the resource
+     */
+    public synchronized void setResourceStates(ResourceStates states)
+    {
+        _states = states;
+        if (states == null) return;
+        states.setTainted(this, tainted);
+        states.setChangedForCompile(this, changedForCompile);
     }
 
 
@@ -167,6 +207,7 @@ public class ClassResource extends WatchedResource
     public void setFile(File sourceFile)
     {
         _sourceFile = sourceFile;
+        _identifier = null;
     }
 
     public Class getAClass()
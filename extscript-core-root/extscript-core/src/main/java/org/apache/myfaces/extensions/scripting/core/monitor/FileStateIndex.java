@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * keeps the last seen state of the source files of an engine
+ * <p>&nbsp;</p>
+ * The full scan compares the modification time and size of every
+ * file against its entry, unchanged files only get their scan
+ * generation updated, so a scan without changes does not allocate
+ * anything per file. Entries which have not been seen in a scan
+ * belong to deleted files.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class FileStateIndex
+{
+    static final class FileState
+    {
+        final String _identifier;
+        long _lastModified;
+        long _length;
+        int _generation;
+
+        FileState(String identifier)
+        {
+            _identifier = identifier;
+        }
+    }
+
+    final Map<String, FileState> _states = new ConcurrentHashMap<String, FileState>();
+    volatile int _generation = 0;
+
+    /**
+     * starts a new full scan
+     */
+    public void beginScan()
+    {
+        _generation++;
+    }
+
+    /**
+     * checks the file against its last seen state and marks it as seen
+     * in the current scan
+     *
+     * @param file the source file
+     * @return true if the file is known and neither its modification time nor its size have changed
+     */
+    public boolean isUnchanged(File file)
+    {
+        FileState state = _states.get(file.getPath());
+        if (state == null) return false;
+        if (state._lastModified != file.lastModified() || state._length != file.length()) return false;
+        state._generation = _generation;
+        return true;
+    }
+
+    /**
+     * stores the current state of a new or changed file
+     *
+     * @param file       the source file
+     * @param identifier the identifier of the resource the file belongs to
+     */
+    public void update(File file, String identifier)
+    {
+        FileState state = _states.get(file.getPath());
+        if (state == null || !state._identifier.equals(identifier))
+        {
+            state = new FileState(identifier);
+            _states.put(file.getPath(), state);
+        }
+        state._lastModified = file.lastModified();
+        state._length = file.length();
+        state._generation = _generation;
+    }
+
+    /**
+     * @param file the source file
+     * @return the identifier of the resource the file belongs to, null if the file is not known
+     */
+    public String getIdentifier(File file)
+    {
+        FileState state = _states.get(file.getPath());
+        return (state == null) ? null : state._identifier;
+    }
+
+    /**
+     * removes the state of a file
+     *
+     * @param file the deleted source file
+     * @return the identifier of the resource the file belonged to, null if the file is not known
+     */
+    public String remove(File file)
+    {
+        FileState state = _states.remove(file.getPath());
+        return (state == null) ? null : state._identifier;
+    }
+
+    /**
+     * ends a full scan, the entries of all files which have not been
+     * seen in this scan are dropped
+     *
+     * @param deleted receives the identifiers of the dropped entries
+     */
+    public void endScan(Collection<String> deleted)
+    {
+        for (Iterator<FileState> it = _states.values().iterator(); it.hasNext(); )
+        {
+            FileState state = it.next();
+            if (state._generation == _generation) continue;
+            it.remove();
+            deleted.add(state._identifier);
+        }
+    }
+
+    public int size()
+    {
+        return _states.size();
+    }
+}
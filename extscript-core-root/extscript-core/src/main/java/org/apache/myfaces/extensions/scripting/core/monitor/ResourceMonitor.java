@@ -25,6 +25,7 @@ import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.End
 
 import javax.servlet.ServletContext;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,6 +70,11 @@ public class ResourceMonitor extends Thread
     //    ScriptingWeaver _weavers = null;
     static WeakReference<ServletContext> _externalContext;
 
+    /**
+     * event driven change detection, null if we run in polling mode
+     */
+    SourceWatcher _sourceWatcher = null;
+
     public static synchronized void init(ServletContext externalContext)
     {
 
@@ -120,14 +126,30 @@ public class ResourceMonitor extends Thread
             //removing the interrupted exception error handler because it can happen
             //and should not log an error.
             //Logger.getLogger(ResourceMonitor.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+            return;
         }
         
+        initSourceWatcher();
+
         while (!Thread.currentThread().isInterrupted())
         {
             if (Thread.currentThread().isInterrupted()) break;
-            //we run the full scan on the classes to bring our data structures up to the task
-            performMonitoringTask();
-            sleep();
+            if (_sourceWatcher != null)
+            {
+                //the watcher blocks until something has changed
+                performEventTask();
+            } else
+            {
+                //we run the full scan on the classes to bring our data structures up to the task
+                performMonitoringTask();
+                sleep();
+            }
+        }
+
+        if (_sourceWatcher != null)
+        {
+            _sourceWatcher.close();
         }
 
         if (_log.isLoggable(Level.INFO))
@@ -137,6 +159,23 @@ public class ResourceMonitor extends Thread
 
     }
 
+    /**
+     * registers the source paths in the watch service if
+     * the event monitoring is enabled
+     */
+    private void initSourceWatcher()
+    {
+        WeavingContext context = WeavingContext.getInstance();
+        if (!context.getConfiguration().isEventMonitoring()) return;
+        _sourceWatcher = SourceWatcher.create(context.getEngines(), context.getConfiguration().getResourceDirs(),
+                context.getResourcePathCache());
+        if (_sourceWatcher == null) return;
+        _log.info("[EXT-SCRIPTING] Event driven change monitor started");
+        //changes which happened between the initial scan and the registration
+        //are not covered by the watcher, hence we rescan once
+        performMonitoringTask();
+    }
+
     public void stopIt()
     {
         super.interrupt();
@@ -152,22 +191,84 @@ public class ResourceMonitor extends Thread
             WeavingContext.getInstance().sendWeavingEvent(new BeginLifecycle());
             WeavingContext context = WeavingContext.getInstance();
             context.fullScan();
+            //without file events the resolved resources are only trusted for one interval
+            context.getResourcePathCache().invalidate();
 
-            //we compile wherever needed, taints are now in place due to our scan already being performed
-            if (context.compile())
-            {
-                //we now have to perform a full dependency scan to bring our dependency map to the latest state
-                context.scanDependencies();
-                //we next retaint all classes according to our dependency graph
-                context.markTaintedDependends();
-            }
+            compileTainted(context);
             WeavingContext.getInstance().sendWeavingEvent(new EndLifecycle());
         }
-        //context.annotationScan();
-
+        //taints of a cycle without compile are sent outside of the recompile lock
+        WeavingContext.getInstance().getEventBus().flushTainted();
     }
 
+    /**
+     * event driven counterpart to performMonitoringTask,
+     * waits for the watcher to report changes and processes only
+     * the resources the changed files belong to
+     */
+    public void performEventTask()
+    {
+        try
+        {
+            if (!_sourceWatcher.awaitChanges(ScriptingConst.TAINT_INTERVAL)) return;
+        }
+        catch (InterruptedException e)
+        {
+            //shutdown, the loop will terminate
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized(WeavingContext.getInstance().recompileLock) {
+            WeavingContext context = WeavingContext.getInstance();
+            context.sendWeavingEvent(new BeginLifecycle());
+            if (_sourceWatcher.applyChanges(context.getEngines()))
+            {
+                _log.info("[EXT-SCRIPTING] file events lost, performing a full scan");
+                context.fullScan();
+            }
+            compileTainted(context);
+            context.sendWeavingEvent(new EndLifecycle());
+        }
+        WeavingContext.getInstance().getEventBus().flushTainted();
+    }
 
+    /**
+     * compiles the tainted resources, the compile runs into the staging
+     * area without blocking the requests, only the swap of the
+     * compiled classes and the retainting of the dependencies happen under
+     * the exclusive swap lock
+     *
+     * @param context the weaving context
+     */
+    private void compileTainted(WeavingContext context)
+    {
+        //we compile wherever needed, taints are now in place due to our scan already being performed
+        if (context.compile())
+        {
+            Lock swapLock = context.getSwapLock();
+            swapLock.lock();
+            try
+            {
+                context.publishCompiledClasses();
+                //we next retaint all classes according to our dependency graph,
+                //the graph of the last cycle covers all classes referring to the changed ones
+                context.markTaintedDependends();
+                //the cycle has ended, the proxies now have to reweave their delegates
+                context.nextReloadGeneration();
+                //the taints have to be known before the first request sees the new classes
+                context.getEventBus().flushTainted();
+            }
+            finally
+            {
+                swapLock.unlock();
+            }
+            //we now have to perform a full dependency scan to bring our dependency map to the latest state
+            context.scanDependencies();
+            //the dependency scan has indexed the annotations, the registrations are prepared
+            //here so that the requests only have to pick them up
+            context.prepareAnnotationScan();
+        }
+    }
 
     private void sleep()
     {
@@ -178,7 +279,8 @@ public class ResourceMonitor extends Thread
         catch (InterruptedException e)
         {
             //if the server shuts down while we are in sleep we get an error
-            //which we better should swallow
+            //which we better should swallow, the flag ends the monitor loop
+            Thread.currentThread().interrupt();
         }
     }
 
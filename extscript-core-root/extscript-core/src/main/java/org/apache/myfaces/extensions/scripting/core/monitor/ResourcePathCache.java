@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * caches the files the resource requests resolve to
+ * in the configured resource dirs
+ * <p>&nbsp;</p>
+ * Every resource request would otherwise probe three locations
+ * per resource dir on the file system. Resources which are
+ * not found in any resource dir are cached as well, those
+ * are the ones delegated to the default resource handling.
+ * The monitor clears the cache whenever something changes
+ * in the resource dirs.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class ResourcePathCache
+{
+    /**
+     * upper limit of cached resolutions, the cache starts over if reached,
+     * arbitrary resource names from the requests cannot flood the memory
+     */
+    static final int MAX_ENTRIES = 4096;
+
+    /*negative result, the resource is not part of the resource dirs*/
+    static final File NOT_FOUND = new File("");
+
+    final Map<String, File> _resolved = new ConcurrentHashMap<String, File>();
+    final AtomicLong _generation = new AtomicLong();
+
+    /**
+     * resolves a resource against the resource dirs, within each dir
+     * the resources sub dir, the META-INF/resources sub dir and the
+     * dir itself are probed
+     *
+     * @param resourceRoots the configured resource dirs
+     * @param libraryName   the library of the resource
+     * @param resourceName  the name of the resource
+     * @return the resource file or null if no resource dir hosts it
+     */
+    public File resolve(List<String> resourceRoots, String libraryName, String resourceName)
+    {
+        //library and name always end up in the same sub path, hence it is a unique key
+        String key = libraryName + "/" + resourceName;
+        File resourceFile = _resolved.get(key);
+        if (resourceFile == null)
+        {
+            long generation = _generation.get();
+            resourceFile = locate(resourceRoots, key);
+            if (_resolved.size() >= MAX_ENTRIES)
+            {
+                _resolved.clear();
+            }
+            _resolved.put(key, resourceFile);
+            if (generation != _generation.get())
+            {
+                //the dirs have changed while we were probing, the result might be stale
+                _resolved.remove(key);
+            }
+        }
+        return (resourceFile == NOT_FOUND) ? null : resourceFile;
+    }
+
+    private File locate(List<String> resourceRoots, String resourcePath)
+    {
+        for (String resourceRoot : resourceRoots)
+        {
+            File resourceFile = new File(resourceRoot + "/resources/" + resourcePath);
+            if (resourceFile.exists())
+            {
+                return resourceFile;
+            }
+            resourceFile = new File(resourceRoot + "/META-INF/resources/" + resourcePath);
+            if (resourceFile.exists())
+            {
+                return resourceFile;
+            }
+            resourceFile = new File(resourceRoot + "/" + resourcePath);
+            if (resourceFile.exists())
+            {
+                return resourceFile;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * drops all resolutions, called by the monitor
+     * once the resource dirs have changed
+     */
+    public void invalidate()
+    {
+        _generation.incrementAndGet();
+        _resolved.clear();
+    }
+}
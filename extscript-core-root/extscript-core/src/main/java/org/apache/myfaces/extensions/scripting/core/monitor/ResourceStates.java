@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * the tainted and the changed for compile resources of an engine
+ * <p>&nbsp;</p>
+ * The resources of an engine report their state changes here,
+ * so the engine can answer whether it is tainted or needs a recompile
+ * without walking all of its resources.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class ResourceStates
+{
+    final Set<ClassResource> _tainted = Collections.newSetFromMap(new ConcurrentHashMap<ClassResource, Boolean>());
+    final Set<ClassResource> _changedForCompile = Collections.newSetFromMap(new ConcurrentHashMap<ClassResource,
+            Boolean>());
+    final Set<ClassResource> _taintedView = Collections.unmodifiableSet(_tainted);
+    final Set<ClassResource> _changedForCompileView = Collections.unmodifiableSet(_changedForCompile);
+
+    public void setTainted(ClassResource resource, boolean tainted)
+    {
+        if (tainted)
+        {
+            _tainted.add(resource);
+        } else
+        {
+            _tainted.remove(resource);
+        }
+    }
+
+    public void setChangedForCompile(ClassResource resource, boolean changedForCompile)
+    {
+        if (changedForCompile)
+        {
+            _changedForCompile.add(resource);
+        } else
+        {
+            _changedForCompile.remove(resource);
+        }
+    }
+
+    /**
+     * drops a resource which is not watched anymore
+     *
+     * @param resource the removed resource
+     */
+    public void remove(ClassResource resource)
+    {
+        _tainted.remove(resource);
+        _changedForCompile.remove(resource);
+    }
+
+    public boolean isTainted()
+    {
+        return !_tainted.isEmpty();
+    }
+
+    public boolean isChangedForCompile()
+    {
+        return !_changedForCompile.isEmpty();
+    }
+
+    /**
+     * @return a live read only view on the tainted resources
+     */
+    public Set<ClassResource> getTainted()
+    {
+        return _taintedView;
+    }
+
+    /**
+     * @return a live read only view on the resources changed for the next compile
+     */
+    public Set<ClassResource> getChangedForCompile()
+    {
+        return _changedForCompileView;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import org.apache.myfaces.extensions.scripting.core.engine.api.ScriptingEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ *          <p>&nbsp;</p>
+ *          Event driven change detector for the resource monitor.
+ *          <p>&nbsp;</p>
+ *          Instead of walking all source roots every taint interval
+ *          we register the source roots of all engines recursively
+ *          in a file system watch service and collect the files
+ *          reported by the operating system. Only the resources
+ *          belonging to those files are processed later on.
+ *          <p>&nbsp;</p>
+ *          If the watch service loses events (overflow) or a watched
+ *          directory vanishes we request a full scan, which is the
+ *          old polling behavior. Roots which do not exist yet
+ *          are registered as soon as they have been created.
+ *          <p>&nbsp;</p>
+ *          The resource dirs are watched as well, changes there
+ *          only invalidate the resource path cache. As long as a
+ *          resource dir is not watched the cache is invalidated
+ *          on every wait.
+ */
+public class SourceWatcher
+{
+    static final Logger _log = Logger.getLogger(SourceWatcher.class.getName());
+
+    final WatchService _watchService;
+    final Map<WatchKey, Path> _watchedDirs = new HashMap<WatchKey, Path>();
+
+    /*changes collected since the last apply*/
+    final Set<File> _changedFiles = new LinkedHashSet<File>();
+    volatile boolean _fullScanRequested = false;
+
+    final List<Path> _sourceRoots = new ArrayList<Path>();
+    final List<Path> _resourceRoots = new ArrayList<Path>();
+    final ResourcePathCache _resourcePathCache;
+    /*roots which did not exist at registration time, retried on every await*/
+    final List<Path> _unwatchedRoots = new ArrayList<Path>();
+
+    SourceWatcher(WatchService watchService, ResourcePathCache resourcePathCache)
+    {
+        _watchService = watchService;
+        _resourcePathCache = resourcePathCache;
+    }
+
+    /**
+     * creates a new watcher which observes all source paths
+     * of the given engines and the resource dirs
+     *
+     * @param engines           the engines hosting the source paths
+     * @param resourceDirs      the resource dirs, can be null
+     * @param resourcePathCache the cache to be invalidated on resource changes
+     * @return the watcher or null if the platform does not support a watch service
+     */
+    public static SourceWatcher create(Collection<ScriptingEngine> engines, Collection<String> resourceDirs,
+                                       ResourcePathCache resourcePathCache)
+    {
+        try
+        {
+            SourceWatcher watcher = new SourceWatcher(FileSystems.getDefault().newWatchService(),
+                    resourcePathCache);
+            for (ScriptingEngine engine : engines)
+            {
+                for (String sourcePath : engine.getSourcePaths())
+                {
+                    watcher._sourceRoots.add(normalize(Paths.get(sourcePath)));
+                    watcher.registerRoot(Paths.get(sourcePath));
+                }
+            }
+            if (resourceDirs != null)
+            {
+                for (String resourceDir : resourceDirs)
+                {
+                    watcher._resourceRoots.add(normalize(Paths.get(resourceDir)));
+                    watcher.registerRoot(Paths.get(resourceDir));
+                }
+            }
+            return watcher;
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] watch service not available, falling back to polling", e);
+        }
+        catch (UnsupportedOperationException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] watch service not available, falling back to polling", e);
+        }
+        return null;
+    }
+
+    /**
+     * registers a root dir, a root which does not exist yet
+     * is remembered and registered once it has been created
+     *
+     * @param root the root dir to be registered
+     * @throws IOException in case of a registration error
+     */
+    void registerRoot(Path root) throws IOException
+    {
+        if (Files.isDirectory(root))
+        {
+            registerAll(root);
+            return;
+        }
+        _log.log(Level.WARNING, "[EXT-SCRIPTING] {0} does not exist, it is watched once it has been created", root);
+        _unwatchedRoots.add(root);
+    }
+
+    /**
+     * registers the unwatched roots which have been created in the meantime,
+     * the files already present in them are reported as changed
+     */
+    void registerCreatedRoots()
+    {
+        for (Iterator<Path> it = _unwatchedRoots.iterator(); it.hasNext(); )
+        {
+            Path root = it.next();
+            if (!Files.isDirectory(root)) continue;
+            if (registerNewDir(root))
+            {
+                _log.log(Level.INFO, "[EXT-SCRIPTING] {0} has been created and is watched now", root);
+                it.remove();
+            }
+        }
+    }
+
+    private boolean hasUnwatchedResourceRoot()
+    {
+        for (Path root : _unwatchedRoots)
+        {
+            if (_resourceRoots.contains(normalize(root))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * registers the directory and all its subdirectories
+     *
+     * @param root the root dir to be registered
+     * @throws IOException in case of a registration error
+     */
+    void registerAll(Path root) throws IOException
+    {
+        if (!Files.isDirectory(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+            {
+                WatchKey key = dir.register(_watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                _watchedDirs.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * blocks until the watch service reports changes or the timeout is reached,
+     * and collects all pending changes
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if changes have been detected
+     * @throws InterruptedException if the monitor thread is interrupted while waiting
+     */
+    public boolean awaitChanges(long timeout) throws InterruptedException
+    {
+        registerCreatedRoots();
+        if (hasUnwatchedResourceRoot())
+        {
+            //changes in a resource root we do not watch yet cannot be detected,
+            //the resolutions are only trusted for one interval like in polling mode
+            _resourcePathCache.invalidate();
+        }
+        WatchKey key;
+        try
+        {
+            key = _watchService.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (ClosedWatchServiceException e)
+        {
+            return false;
+        }
+        while (key != null)
+        {
+            processKey(key);
+            key = _watchService.poll();
+        }
+        synchronized (_changedFiles)
+        {
+            return _fullScanRequested || !_changedFiles.isEmpty();
+        }
+    }
+
+    private void processKey(WatchKey key)
+    {
+        Path dir = _watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == OVERFLOW || dir == null)
+            {
+                _fullScanRequested = true;
+                _resourcePathCache.invalidate();
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (kind == ENTRY_CREATE && Files.isDirectory(child))
+            {
+                //a new directory, we have to watch it and pick up
+                //the files which were created before we were able to register it
+                registerNewDir(child);
+                continue;
+            }
+            addChangedFile(child.toFile());
+        }
+        if (!key.reset())
+        {
+            //the directory is gone, we let the full scan sort out the deleted resources
+            _watchedDirs.remove(key);
+            _fullScanRequested = true;
+        }
+    }
+
+    private boolean registerNewDir(Path dir)
+    {
+        try
+        {
+            registerAll(dir);
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                {
+                    addChangedFile(file.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return true;
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.WARNING, "[EXT-SCRIPTING] could not watch " + dir + ", requesting full scan", e);
+            _fullScanRequested = true;
+            return false;
+        }
+    }
+
+    private void addChangedFile(File file)
+    {
+        Path filePath = normalize(file.toPath());
+        if (isBelow(filePath, _resourceRoots))
+        {
+            //resources are not compiled, resetting the resolutions is all we have to do
+            _resourcePathCache.invalidate();
+            if (!isBelow(filePath, _sourceRoots)) return;
+        }
+        synchronized (_changedFiles)
+        {
+            _changedFiles.add(file);
+        }
+    }
+
+    /**
+     * applies the collected changes to the engines
+     * either by scanning the changed files only or
+     * in case of a lost event by a full scan
+     *
+     * @param engines the engines to receive the changes
+     * @return true if a full scan has been requested, in this case no file has been processed
+     *         and the caller has to perform the full scan
+     */
+    public boolean applyChanges(Collection<ScriptingEngine> engines)
+    {
+        Set<File> changedFiles;
+        synchronized (_changedFiles)
+        {
+            changedFiles = new LinkedHashSet<File>(_changedFiles);
+            _changedFiles.clear();
+        }
+        if (_fullScanRequested)
+        {
+            _fullScanRequested = false;
+            return true;
+        }
+        for (File changedFile : changedFiles)
+        {
+            for (ScriptingEngine engine : engines)
+            {
+                if (isSourceOfEngine(engine, changedFile))
+                {
+                    engine.scanSourceFile(changedFile);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSourceOfEngine(ScriptingEngine engine, File file)
+    {
+        if (!file.getName().endsWith("." + engine.getFileEnding())) return false;
+        Path filePath = file.toPath().toAbsolutePath().normalize();
+        for (String sourcePath : engine.getSourcePaths())
+        {
+            if (filePath.startsWith(Paths.get(sourcePath).toAbsolutePath().normalize())) return true;
+        }
+        return false;
+    }
+
+    private static boolean isBelow(Path path, List<Path> roots)
+    {
+        for (Path root : roots)
+        {
+            if (path.startsWith(root)) return true;
+        }
+        return false;
+    }
+
+    private static Path normalize(Path path)
+    {
+        return path.toAbsolutePath().normalize();
+    }
+
+    public void close()
+    {
+        try
+        {
+            _watchService.close();
+        }
+        catch (IOException e)
+        {
+            _log.log(Level.FINEST, e.toString());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * bounded history of the taints
+ * <p>&nbsp;</p>
+ * The entries are kept in a ring buffer and get monotonic sequence
+ * numbers starting with 1, so a reader can ask for everything
+ * since the sequence number it has seen last. Entries are published
+ * in sequence order with ascending timestamps, hence queries by time
+ * use a binary search. Readers never lock, the oldest entries
+ * are overwritten once the buffer is full.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class TaintLog
+{
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    static final class Entry
+    {
+        final long _sequence;
+        final long _timestamp;
+        final ClassResource _data;
+
+        Entry(long sequence, long timestamp, ClassResource data)
+        {
+            _sequence = sequence;
+            _timestamp = timestamp;
+            _data = data;
+        }
+    }
+
+    final AtomicReferenceArray<Entry> _entries;
+    final int _mask;
+    final long _timeout;
+    /*last claimed and last published sequence*/
+    final AtomicLong _claimed = new AtomicLong(0);
+    final AtomicLong _published = new AtomicLong(0);
+
+    /**
+     * @param capacity the number of entries kept, rounded up to a power of two
+     * @param timeout  the time in ms after which entries are not reported anymore
+     */
+    public TaintLog(int capacity, long timeout)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        _entries = new AtomicReferenceArray<Entry>(size);
+        _mask = size - 1;
+        _timeout = timeout;
+    }
+
+    /**
+     * adds a taint to the history
+     *
+     * @param data the tainted resource
+     * @return the sequence number of the new entry
+     */
+    public long add(ClassResource data)
+    {
+        long sequence = _claimed.incrementAndGet();
+        //entries are published in sequence order, a writer waits for its predecessor
+        while (_published.get() != sequence - 1)
+        {
+            Thread.yield();
+        }
+        Entry previous = _entries.get(index(sequence - 1));
+        long timestamp = System.currentTimeMillis();
+        if (previous != null && previous._sequence == sequence - 1 && previous._timestamp > timestamp)
+        {
+            //the clock went backwards, timestamps stay ascending for the binary search
+            timestamp = previous._timestamp;
+        }
+        _entries.set(index(sequence), new Entry(sequence, timestamp, data));
+        _published.set(sequence);
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number of the last entry, 0 if nothing has been tainted yet
+     */
+    public long getLastSequence()
+    {
+        return _published.get();
+    }
+
+    /**
+     * checks whether all entries after the given sequence number are still in the history
+     *
+     * @param sequence a sequence number returned by {@link #getLastSequence()}
+     * @return false if entries after the sequence have been overwritten or have timed out
+     */
+    public boolean isComplete(long sequence)
+    {
+        long last = _published.get();
+        if (sequence >= last) return true;
+        if (last - sequence > _entries.length()) return false;
+        Entry first = _entries.get(index(sequence + 1));
+        return first != null && first._sequence == sequence + 1 && !isTimedOut(first, System.currentTimeMillis());
+    }
+
+    /**
+     * @param sequence the sequence number seen last
+     * @return the resources tainted after the given sequence number
+     */
+    public List<ClassResource> getSince(long sequence)
+    {
+        long last = _published.get();
+        if (sequence >= last) return Collections.emptyList();
+        return collect(Math.max(sequence + 1, last - _entries.length() + 1), last);
+    }
+
+    /**
+     * @param timestamp the point in time from which on the taints are requested
+     * @return the resources tainted at or after the given time
+     */
+    public List<ClassResource> getSinceTime(long timestamp)
+    {
+        long last = _published.get();
+        long low = Math.max(1, last - _entries.length() + 1);
+        long high = last;
+        //first sequence with a timestamp >= the requested one
+        while (low <= high)
+        {
+            long middle = (low + high) >>> 1;
+            Entry entry = _entries.get(index(middle));
+            if (entry == null || entry._sequence != middle || entry._timestamp < timestamp)
+            {
+                //overwritten entries are older than everything still retained
+                low = middle + 1;
+            } else
+            {
+                high = middle - 1;
+            }
+        }
+        return (low > last) ? Collections.<ClassResource>emptyList() : collect(low, last);
+    }
+
+    /**
+     * @param noOfEntries the number of entries requested
+     * @return the last noOfEntries tainted resources, the oldest first
+     */
+    public List<ClassResource> getLast(int noOfEntries)
+    {
+        long last = _published.get();
+        if (noOfEntries <= 0 || last == 0) return Collections.emptyList();
+        long from = Math.max(1, last - Math.min(noOfEntries, _entries.length()) + 1);
+        return collect(from, last);
+    }
+
+    private List<ClassResource> collect(long from, long to)
+    {
+        long now = System.currentTimeMillis();
+        List<ClassResource> retVal = new ArrayList<ClassResource>((int) (to - from + 1));
+        for (long sequence = from; sequence <= to; sequence++)
+        {
+            Entry entry = _entries.get(index(sequence));
+            //skips entries overwritten while reading
+            if (entry == null || entry._sequence != sequence || isTimedOut(entry, now)) continue;
+            retVal.add(entry._data);
+        }
+        return retVal;
+    }
+
+    private boolean isTimedOut(Entry entry, long now)
+    {
+        return _timeout > 0 && entry._timestamp < now - _timeout;
+    }
+
+    private int index(long sequence)
+    {
+        return (int) (sequence & _mask);
+    }
+}
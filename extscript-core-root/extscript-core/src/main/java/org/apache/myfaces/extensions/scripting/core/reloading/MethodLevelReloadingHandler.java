@@ -23,9 +23,16 @@ import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Generic artifact invocation handler
@@ -45,8 +52,23 @@ public class MethodLevelReloadingHandler extends ReloadingInvocationHandler impl
 
     private static final long serialVersionUID = -3034995032644947216L;
 
+    /**
+     * invocation handles per interface method, the handles do not depend on the
+     * delegate class, they are attached to the declaring class of the method
+     * so they are dropped together with it
+     */
+    private static final ClassValue<Map<Method, MethodHandle>> _handles = new ClassValue<Map<Method, MethodHandle>>() {
+        @Override
+        protected Map<Method, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Method, MethodHandle>();
+        }
+    };
+
     int _artifactType;
 
+    /*reload generation the delegate has been woven at, the reload is skipped while it is current*/
+    transient volatile long _wovenGeneration = -1;
+
     public MethodLevelReloadingHandler(Object rootObject, int artifactType) {
         _loadedClass = rootObject.getClass();
         _delegate = rootObject;
@@ -81,19 +103,7 @@ public class MethodLevelReloadingHandler extends ReloadingInvocationHandler impl
      */
 
     protected Object reloadInvoke(Method method, Object[] paramHolders) throws InstantiationException, IllegalAccessException, InvocationTargetException {
-
-
-        if (_delegate == null) {
-            //stateless or lost state due to a lifecycle iteration we trigger anew
-            _delegate = (WeavingContext.getInstance().reload(_loadedClass)).newInstance();
-        } else {
-            //if we are stateful only a tainted artifact is reloaded
-            _delegate = WeavingContext.getInstance().reload(_delegate, _artifactType);
-
-            //we work our way through all proxies and fetch the class for further reference
-            Object delegate = WeavingContext.getDelegateFromProxy(_delegate);
-            _loadedClass = delegate.getClass();
-        }
+        reloadDelegate();
         //check for proxies and unproxy them before calling the methods
         //to avoid unnecessary cast problems
         //this is slow on long param lists but it is better
@@ -101,7 +111,89 @@ public class MethodLevelReloadingHandler extends ReloadingInvocationHandler impl
         //for production we can compile the classes anyway and avoid
         //this
         unmapProxies(paramHolders);
-        return method.invoke(_delegate, paramHolders);
+        MethodHandle handle = getHandle(method);
+        if (handle == null) {
+            return method.invoke(_delegate, paramHolders);
+        }
+        try {
+            return (Object) handle.invokeExact(_delegate, paramHolders);
+        } catch (WrongMethodTypeException e) {
+            //a broken handle, not an exception of the delegate
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            //same contract as the reflective call
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * reloads the delegate if needed, a stateful delegate
+     * only can be tainted after a compile cycle has ended
+     * hence we skip the reload as long as the reload generation is unchanged
+     *
+     * @return the current delegate
+     * @throws InstantiationException standard throw caused by reflection
+     * @throws IllegalAccessException standard throw caused by reflection
+     */
+    protected Object reloadDelegate() throws InstantiationException, IllegalAccessException {
+        if (_delegate == null) {
+            //stateless or lost state due to a lifecycle iteration we trigger anew
+            _delegate = (WeavingContext.getInstance().reload(_loadedClass)).newInstance();
+        } else {
+            long generation = WeavingContext.getInstance().getReloadGeneration();
+            if (generation != _wovenGeneration) {
+                _delegate = WeavingContext.getInstance().reload(_delegate, _artifactType);
+
+                //we work our way through all proxies and fetch the class for further reference
+                Object delegate = WeavingContext.getDelegateFromProxy(_delegate);
+                _loadedClass = delegate.getClass();
+                _wovenGeneration = generation;
+            }
+        }
+        return _delegate;
+    }
+
+    /**
+     * entry point for the generated reloading proxies
+     * which call the delegate directly with their typed parameters
+     *
+     * @return the current, possibly reloaded delegate
+     */
+    public Object getCurrentDelegate() {
+        try {
+            return reloadDelegate();
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * fetches the invocation handle for the given method, the handle takes
+     * the delegate and the parameter array and hence has the same shape
+     * as a reflective call
+     *
+     * @param method the interface method to be called
+     * @return the handle or null if the method is not accessible via handles
+     */
+    private MethodHandle getHandle(Method method) {
+        Map<Method, MethodHandle> classHandles = _handles.get(method.getDeclaringClass());
+        MethodHandle handle = classHandles.get(method);
+        if (handle != null) return handle;
+        try {
+            int paramCount = method.getParameterTypes().length;
+            handle = MethodHandles.publicLookup().unreflect(method)
+                    .asType(MethodType.genericMethodType(paramCount + 1))
+                    .asSpreader(Object[].class, paramCount);
+        } catch (IllegalAccessException e) {
+            //non public interfaces are left to the reflection api
+            return null;
+        }
+        classHandles.put(method, handle);
+        return handle;
     }
 
     /**
@@ -124,8 +216,19 @@ public class MethodLevelReloadingHandler extends ReloadingInvocationHandler impl
         _artifactType = artifactType;
     }
 
+    /*the delegate is kept by the non serializable base class, hence we write it ourselves*/
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(_loadedClass);
+        out.writeObject(_delegate);
+    }
+
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        _loadedClass = (Class<?>) in.readObject();
+        _delegate = in.readObject();
+        //the generation is not valid across vms, we reweave on the first call
+        _wovenGeneration = -1;
     }
 
 }
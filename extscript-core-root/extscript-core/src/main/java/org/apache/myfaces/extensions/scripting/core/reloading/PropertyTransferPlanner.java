@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.reloading;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Property transfer between the old and the new instance of a reloaded class.
+ * <p>&nbsp;</p>
+ * Instead of introspecting both classes on every copy like the bean utils do,
+ * we compute once per (old class, new class) pair the list of properties
+ * which are readable on the old and writable on the new class with a compatible
+ * type. Every pair is bound into a single method handle which passes
+ * the value from the getter straight into the setter, no conversion and no boxing
+ * is involved. Properties with incompatible types are skipped.
+ * <p>&nbsp;</p>
+ * The plans are attached to the old class, so they are dropped once
+ * the old throw away class is unloaded.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class PropertyTransferPlanner
+{
+    static final Logger _log = Logger.getLogger(PropertyTransferPlanner.class.getName());
+
+    private static final MethodType TRANSFER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * the plans per source class and target class
+     */
+    private static final ClassValue<Map<Class<?>, PropertyTransfer[]>> _plans = new ClassValue<Map<Class<?>, PropertyTransfer[]>>()
+    {
+        @Override
+        protected Map<Class<?>, PropertyTransfer[]> computeValue(Class<?> type)
+        {
+            return new ConcurrentHashMap<Class<?>, PropertyTransfer[]>();
+        }
+    };
+
+    /**
+     * copies all compatible properties from src to dest
+     *
+     * @param dest the target which has to receive the properties
+     * @param src  the source which has the original properties
+     */
+    public static void copyProperties(Object dest, Object src)
+    {
+        for (PropertyTransfer transfer : getPlan(src.getClass(), dest.getClass()))
+        {
+            transfer.transfer(dest, src);
+        }
+    }
+
+    /**
+     * @param source the class of the old instance
+     * @param target the class of the new instance
+     * @return the cached transfer plan for the given class pair
+     */
+    public static PropertyTransfer[] getPlan(Class<?> source, Class<?> target)
+    {
+        Map<Class<?>, PropertyTransfer[]> plans = _plans.get(source);
+        PropertyTransfer[] plan = plans.get(target);
+        if (plan == null)
+        {
+            //a concurrent computation yields the same plan, hence no locking
+            plan = createPlan(source, target);
+            plans.put(target, plan);
+        }
+        return plan;
+    }
+
+    static PropertyTransfer[] createPlan(Class<?> source, Class<?> target)
+    {
+        Map<String, PropertyDescriptor> writable = new HashMap<String, PropertyDescriptor>();
+        for (PropertyDescriptor descriptor : getPropertyDescriptors(target))
+        {
+            if (descriptor.getWriteMethod() != null)
+            {
+                writable.put(descriptor.getName(), descriptor);
+            }
+        }
+        List<PropertyTransfer> plan = new ArrayList<PropertyTransfer>();
+        for (PropertyDescriptor descriptor : getPropertyDescriptors(source))
+        {
+            Method getter = descriptor.getReadMethod();
+            PropertyDescriptor targetDescriptor = writable.get(descriptor.getName());
+            if (getter == null || targetDescriptor == null)
+            {
+                continue;
+            }
+            Method setter = targetDescriptor.getWriteMethod();
+            Class<?> valueType = getter.getReturnType();
+            Class<?> paramType = setter.getParameterTypes()[0];
+            if (valueType.isPrimitive() ? valueType != paramType : !paramType.isAssignableFrom(valueType))
+            {
+                _log.log(Level.FINEST, "[EXT-SCRIPTING] property {0} skipped, incompatible types", descriptor.getName());
+                continue;
+            }
+            try
+            {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodHandle get = lookup.unreflect(getter).asType(MethodType.methodType(valueType, Object.class));
+                MethodHandle set = lookup.unreflect(setter).asType(MethodType.methodType(void.class, Object.class, valueType));
+                //(dest, src) -> dest.setX(src.getX())
+                MethodHandle transfer = MethodHandles.filterArguments(set, 1, get).asType(TRANSFER_TYPE);
+                plan.add(new PropertyTransfer(descriptor.getName(), transfer));
+            }
+            catch (IllegalAccessException e)
+            {
+                _log.log(Level.FINEST, "[EXT-SCRIPTING] property {0} skipped, not accessible", descriptor.getName());
+            }
+        }
+        return plan.toArray(new PropertyTransfer[plan.size()]);
+    }
+
+    private static PropertyDescriptor[] getPropertyDescriptors(Class<?> clazz)
+    {
+        try
+        {
+            BeanInfo info = Introspector.getBeanInfo(clazz, Object.class);
+            return info.getPropertyDescriptors();
+        }
+        catch (IntrospectionException e)
+        {
+            _log.log(Level.FINEST, e.toString());
+            return new PropertyDescriptor[0];
+        }
+    }
+
+    /**
+     * a single precompiled property transfer
+     */
+    public static class PropertyTransfer
+    {
+        final String _name;
+        final MethodHandle _transfer;
+
+        PropertyTransfer(String name, MethodHandle transfer)
+        {
+            _name = name;
+            _transfer = transfer;
+        }
+
+        public String getName()
+        {
+            return _name;
+        }
+
+        /**
+         * transfers the value, a failing accessor only skips
+         * this property like the bean utils did for the whole copy
+         *
+         * @param dest the target object
+         * @param src  the source object
+         */
+        public void transfer(Object dest, Object src)
+        {
+            try
+            {
+                _transfer.invokeExact(dest, src);
+            }
+            catch (Error e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                _log.log(Level.FINEST, e.toString());
+                //this is wanted
+            }
+            catch (Throwable e)
+            {
+                //neither an exception nor an error, nothing an accessor should throw
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
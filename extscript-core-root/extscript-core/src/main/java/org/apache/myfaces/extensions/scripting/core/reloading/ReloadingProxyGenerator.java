@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.reloading;
+
+import org.apache.myfaces.extensions.scripting.core.api.Decorated;
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates method level reloading proxies as concrete classes
+ * instead of going through java.lang.reflect.Proxy.
+ * <p>&nbsp;</p>
+ * One class is generated per proxied type, every public method of the type
+ * fetches the current delegate from its {@link MethodLevelReloadingHandler}
+ * and calls it directly with its typed parameters, no argument boxing
+ * and no reflection is involved. The handler only reloads if the
+ * reload generation has changed, so the steady state is a single volatile read.
+ * <p>&nbsp;</p>
+ * Unlike java.lang.reflect.Proxy this also works on abstract base classes
+ * like the navigation handler, as long as they provide an accessible
+ * no argument constructor.
+ * <p>&nbsp;</p>
+ * Proxies passed in as arguments are unwrapped before the delegate is called,
+ * same as the reflective handler does. The proxies are serializable,
+ * they are written as their handler and the proxied type and
+ * regenerated on deserialization.
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+public class ReloadingProxyGenerator implements Opcodes
+{
+    static final String PROXY_PACKAGE = "org.apache.myfaces.extensions.scripting.core.reloading.generated.";
+    static final String PROXY_SUFFIX = "$$ReloadingProxy";
+
+    static final String HANDLER = Type.getInternalName(MethodLevelReloadingHandler.class);
+    static final String HANDLER_DESC = Type.getDescriptor(MethodLevelReloadingHandler.class);
+    static final String HANDLER_FIELD = "_handler";
+    static final String WEAVING_CONTEXT = Type.getInternalName(WeavingContext.class);
+    static final String SERIALIZED_PROXY = Type.getInternalName(SerializedProxy.class);
+
+    /**
+     * the proxy constructors per proxied type
+     */
+    private static final ClassValue<Constructor<?>> _proxies = new ClassValue<Constructor<?>>()
+    {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type)
+        {
+            return generate(type);
+        }
+    };
+
+    /**
+     * checks if a reloading proxy can be generated for the given type
+     *
+     * @param type the interface or base class to be proxied
+     * @return true if the type is public and either an interface or
+     *         a non final class with an accessible no argument constructor
+     */
+    public static boolean isProxyable(Class<?> type)
+    {
+        if (!Modifier.isPublic(type.getModifiers()) || type.isPrimitive() || type.isArray())
+        {
+            return false;
+        }
+        if (type.isInterface())
+        {
+            return true;
+        }
+        if (Modifier.isFinal(type.getModifiers()))
+        {
+            return false;
+        }
+        try
+        {
+            int modifiers = type.getDeclaredConstructor().getModifiers();
+            return Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers);
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * creates a new reloading proxy
+     *
+     * @param o            the object to be proxied
+     * @param type         the interface or base class the proxy has to provide
+     * @param artifactType the artifact type to be reloaded
+     * @return a proxy of type theType which reloads the object on method level
+     * @throws IllegalArgumentException if the type cannot be proxied
+     */
+    public static Object newProxy(Object o, Class<?> type, int artifactType)
+    {
+        if (!isProxyable(type))
+        {
+            throw new IllegalArgumentException("[EXT-SCRIPTING] no reloading proxy possible for " + type.getName());
+        }
+        return newProxy(type, new MethodLevelReloadingHandler(o, artifactType));
+    }
+
+    static Object newProxy(Class<?> type, MethodLevelReloadingHandler handler)
+    {
+        try
+        {
+            return _proxies.get(type).newInstance(handler);
+        }
+        catch (InstantiationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Constructor<?> generate(Class<?> type)
+    {
+        String proxyName = PROXY_PACKAGE + type.getName().replace('.', '_') + PROXY_SUFFIX;
+        byte[] bytecode = createProxyClass(type, proxyName.replace('.', '/'));
+        ProxyClassLoader loader = new ProxyClassLoader(type.getClassLoader());
+        try
+        {
+            return loader.define(proxyName, bytecode).getConstructor(MethodLevelReloadingHandler.class);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] createProxyClass(Class<?> type, String proxyName)
+    {
+        boolean isInterface = type.isInterface();
+        String target = Type.getInternalName(type);
+        String superName = isInterface ? "java/lang/Object" : target;
+        List<String> interfaces = new ArrayList<String>();
+        if (isInterface)
+        {
+            interfaces.add(target);
+        }
+        interfaces.add(Type.getInternalName(Decorated.class));
+        if (!Serializable.class.isAssignableFrom(type))
+        {
+            interfaces.add(Type.getInternalName(Serializable.class));
+        }
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, proxyName, null, superName,
+                interfaces.toArray(new String[interfaces.size()]));
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, HANDLER_FIELD, HANDLER_DESC, null, null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + HANDLER_DESC + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V");
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, proxyName, HANDLER_FIELD, HANDLER_DESC);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        //the decorated contract gives access to the delegate without reloading
+        mv = cw.visitMethod(ACC_PUBLIC, "getDelegate", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, proxyName, HANDLER_FIELD, HANDLER_DESC);
+        mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "getDelegate", "()Ljava/lang/Object;");
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        //the generated class only lives in its own loader, hence it is
+        //serialized as the handler together with the proxied type
+        mv = cw.visitMethod(ACC_PROTECTED, "writeReplace", "()Ljava/lang/Object;", null,
+                new String[]{Type.getInternalName(ObjectStreamException.class)});
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, SERIALIZED_PROXY);
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn(Type.getType(type));
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, proxyName, HANDLER_FIELD, HANDLER_DESC);
+        mv.visitMethodInsn(INVOKESPECIAL, SERIALIZED_PROXY, "<init>", "(Ljava/lang/Class;" + HANDLER_DESC + ")V");
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        Set<String> visited = new HashSet<String>();
+        visited.add("getDelegate()Ljava/lang/Object;");
+        visited.add("writeReplace()Ljava/lang/Object;");
+        for (Method method : type.getMethods())
+        {
+            addDelegatingMethod(cw, proxyName, type, method, visited);
+        }
+        if (isInterface)
+        {
+            //same as java.lang.reflect.Proxy, those are routed to the delegate as well
+            for (Method method : Object.class.getMethods())
+            {
+                addDelegatingMethod(cw, proxyName, Object.class, method, visited);
+            }
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * adds a method which calls the current delegate,
+     * the call goes against the proxied type because the declaring
+     * class of the method might not be accessible,
+     * reference arguments are unwrapped if they are proxies themselves
+     */
+    private static void addDelegatingMethod(ClassWriter cw, String proxyName, Class<?> owner, Method method,
+                                            Set<String> visited)
+    {
+        int modifiers = method.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers))
+        {
+            return;
+        }
+        String descriptor = Type.getMethodDescriptor(method);
+        if (!visited.add(method.getName() + descriptor))
+        {
+            return;
+        }
+        String ownerName = Type.getInternalName(owner);
+        Class<?>[] exceptions = method.getExceptionTypes();
+        String[] exceptionNames = new String[exceptions.length];
+        for (int cnt = 0; cnt < exceptions.length; cnt++)
+        {
+            exceptionNames[cnt] = Type.getInternalName(exceptions[cnt]);
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, method.getName(), descriptor, null, exceptionNames);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, proxyName, HANDLER_FIELD, HANDLER_DESC);
+        mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "getCurrentDelegate", "()Ljava/lang/Object;");
+        if (owner != Object.class)
+        {
+            mv.visitTypeInsn(CHECKCAST, ownerName);
+        }
+        int slot = 1;
+        for (Type argument : Type.getArgumentTypes(method))
+        {
+            mv.visitVarInsn(argument.getOpcode(ILOAD), slot);
+            slot += argument.getSize();
+            int sort = argument.getSort();
+            if (sort != Type.OBJECT && sort != Type.ARRAY) continue;
+            mv.visitMethodInsn(INVOKESTATIC, WEAVING_CONTEXT, "getDelegateFromProxy",
+                    "(Ljava/lang/Object;)Ljava/lang/Object;");
+            if (!argument.getInternalName().equals("java/lang/Object"))
+            {
+                mv.visitTypeInsn(CHECKCAST, argument.getInternalName());
+            }
+        }
+        mv.visitMethodInsn(owner.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL, ownerName, method.getName(), descriptor);
+        mv.visitInsn(Type.getReturnType(method).getOpcode(IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * serialized form of a generated proxy, resolves
+     * into a new proxy of the same type on deserialization
+     */
+    public static final class SerializedProxy implements Serializable
+    {
+        private static final long serialVersionUID = 4508542871353049346L;
+
+        final Class<?> _type;
+        final MethodLevelReloadingHandler _handler;
+
+        public SerializedProxy(Class<?> type, MethodLevelReloadingHandler handler)
+        {
+            _type = type;
+            _handler = handler;
+        }
+
+        Object readResolve() throws ObjectStreamException
+        {
+            return newProxy(_type, _handler);
+        }
+    }
+
+    /**
+     * defines the generated classes on top of the loader of the proxied type,
+     * only our own classes are resolved from the extscript loader
+     */
+    static final class ProxyClassLoader extends ClassLoader
+    {
+        static final Class<?>[] EXTSCRIPT_CLASSES = {MethodLevelReloadingHandler.class, Decorated.class,
+                WeavingContext.class, SerializedProxy.class};
+
+        ProxyClassLoader(ClassLoader parent)
+        {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+            for (Class<?> extscriptClass : EXTSCRIPT_CLASSES)
+            {
+                if (name.equals(extscriptClass.getName()))
+                {
+                    return extscriptClass;
+                }
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] bytecode)
+        {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -35,7 +35,8 @@ import java.util.logging.Logger;
 /**
  * This filter is just a blocking filter
  * refreshes are not allowed while the system
- * recompiles, incoming requests are put on hold
+ * swaps in recompiled classes, incoming requests are put on hold
+ * for the duration of the swap, the compile itself does not block them
  *
  * @author Werner Punz
  */
@@ -57,10 +58,8 @@ public class ScriptingServletFilter implements Filter
 
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws ServletException, IOException
     {
-        synchronized (WeavingContext.getInstance().recompileLock)
-        {
-            logger.fine("request");
-        }
+        //only blocks while freshly compiled classes are swapped in
+        WeavingContext.getInstance().awaitSwap();
         filterChain.doFilter(servletRequest, servletResponse);
     }
 
@@ -23,18 +23,22 @@ import org.apache.myfaces.extensions.scripting.core.api.ClassScanListener;
 import org.apache.myfaces.extensions.scripting.core.api.ScriptingConst;
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.common.util.ClassUtils;
+import org.apache.myfaces.extensions.scripting.core.engine.AnnotationIndex;
 import org.apache.myfaces.extensions.scripting.core.engine.ThrowAwayClassloader;
 import org.apache.myfaces.extensions.scripting.core.engine.api.ClassScanner;
 
 import javax.faces.context.FacesContext;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +64,9 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
 
     WeavingContext _weaver = null;
 
+    //registrations prepared by the monitor, swapped out by the next request
+    final AtomicReference<Map<String, PreparedClass>> _prepared = new AtomicReference<Map<String, PreparedClass>>();
+
     public GenericAnnotationScanner() {
         _weaver = WeavingContext.getInstance();
         initDefaultListeners();
@@ -86,9 +93,9 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
 
         Collection<java.lang.annotation.Annotation> annCol = filterAnnotations(annotations);
         if (!annCol.isEmpty()) {
-            addOrMoveAnnotations(clazz);
+            addOrMoveAnnotations(clazz, annCol);
         } else {
-            removeAnnotations(clazz);
+            removeAnnotations(clazz.getName());
         }
     }
 
@@ -106,12 +113,58 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
     }
 
     /**
-     * builds up the parsing chain and then notifies its observers
-     * on the found data
+     * prepares the registrations for the annotation changes the dependency scan
+     * has indexed from the class files, runs on the monitor thread,
+     * only classes which carry jsf annotations are loaded
+     */
+    public void prepareScan() {
+        AnnotationIndex annotationIndex = _weaver.getAnnotationIndex();
+        if (!annotationIndex.hasChanges()) return;
+
+        AnnotationIndex.Changes changes = annotationIndex.fetchChanges();
+        Map<String, PreparedClass> prepared = new LinkedHashMap<String, PreparedClass>();
+        for (String className : changes.getPurged()) {
+            prepared.put(className, new PreparedClass(null, null));
+        }
+        if (!changes.getRegistered().isEmpty()) {
+            //one loader for all changed classes, the classes of one compile cycle belong together
+            ThrowAwayClassloader loader = new ThrowAwayClassloader(ClassUtils.getContextClassLoader(), false);
+            for (String className : changes.getRegistered()) {
+                try {
+                    Class<?> clazz = loader.loadClass(className);
+                    prepared.put(className, new PreparedClass(clazz, filterAnnotations(clazz.getAnnotations())));
+                } catch (ClassNotFoundException e) {
+                    Logger _logger = Logger.getLogger(this.getClass().getName());
+                    _logger.log(Level.WARNING, "", e);
+                }
+            }
+        }
+        //the requests might not have picked up the last cycle yet, in this case
+        //both cycles are merged, the later cycle wins per class
+        for (; ; ) {
+            Map<String, PreparedClass> pending = _prepared.get();
+            Map<String, PreparedClass> merged = prepared;
+            if (pending != null) {
+                merged = new LinkedHashMap<String, PreparedClass>(pending);
+                for (Map.Entry<String, PreparedClass> entry : prepared.entrySet()) {
+                    merged.remove(entry.getKey());
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (_prepared.compareAndSet(pending, Collections.unmodifiableMap(merged))) return;
+        }
+    }
+
+    /**
+     * applies the registrations prepared by the monitor,
+     * the request threads only swap the prepared result out
+     * and never load or scan classes themselves
      */
     public void scanPaths() {
         //https://issues.apache.org/jira/browse/EXTSCRIPT-33
 
+        //nothing prepared, the common case, no locking needed
+        if (_prepared.get() == null) return;
         //check if the faces config is already available otherwise we cannot scan yet
         final FacesContext facesContext = FacesContext.getCurrentInstance();
         //runtime config not started
@@ -122,55 +175,33 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
             //to get the runtime config
             return;
         }
-        if(!_weaver.isPostInit() || _weaver.getLastAnnotationScan() >= _weaver.getLastTaint()) return;
-        _weaver.markLastAnnotationScan();
-
-
-        for (String className : _weaver.loadPossibleDynamicClasses()) {
-            try {
-                if(!_weaver.isTainted(className)) continue;
-
-                //TODO replace this with a direct call to our weavingContext
-                //<>ScannerClassloader loader = new ScannerClassloader(Thread.currentThread().getContextClassLoader(),
-                //        -1, null, _weaver.getConfiguration().getCompileTarget());
-                ThrowAwayClassloader loader = new ThrowAwayClassloader(ClassUtils.getContextClassLoader(), false);
-
-
-
-                Class clazz;
-                //in case the class does not exist we have to load it from our weavingcontext
-                //otherwise we do just a scan on the class to avoid side behavior
-                //if (WeavingContext.getFileChangedDaemon().getClassMap().get(className) == null) {
-                //    clazz = _weaver.loadScriptingClassFromName(className);
-                //} else {
-                    clazz = loader.loadClass(className);
-                //}
-
-                if (clazz != null) {
-                    java.lang.annotation.Annotation[] anns = clazz.getAnnotations();
-                    if (anns != null && anns.length > 0) {
-                        addOrMoveAnnotations(clazz);
-                    } else {
-                        removeAnnotations(clazz);
-                    }
+        if (!_weaver.isPostInit()) return;
+        //the swap and the registration happen together, otherwise an older
+        //cycle could be applied after a newer one
+        synchronized (_registeredAnnotations) {
+            Map<String, PreparedClass> prepared = _prepared.getAndSet(null);
+            if (prepared == null) return;
+            _weaver.markLastAnnotationScan();
+            for (Map.Entry<String, PreparedClass> entry : prepared.entrySet()) {
+                PreparedClass preparedClass = entry.getValue();
+                if (preparedClass._clazz == null) {
+                    removeAnnotations(entry.getKey());
+                } else {
+                    addOrMoveAnnotations(preparedClass._clazz, preparedClass._annotations);
                 }
-            } catch (ClassNotFoundException e) {
-                Logger _logger = Logger.getLogger(this.getClass().getName());
-                _logger.log(Level.WARNING, "", e);
             }
         }
-
     }
 
     /**
      * add or moves a class level annotation
      * to a new place
      *
-     * @param clazz the class to have the annotation moved or added
+     * @param clazz       the class to have the annotation moved or added
+     * @param annotations the jsf annotations of the class
      */
-    private void addOrMoveAnnotations(Class clazz) {
-        java.lang.annotation.Annotation[] anns = clazz.getAnnotations();
-        for (java.lang.annotation.Annotation ann : anns) {
+    private void addOrMoveAnnotations(Class<?> clazz, Collection<java.lang.annotation.Annotation> annotations) {
+        for (java.lang.annotation.Annotation ann : annotations) {
             for (ClassScanListener cListener : _listeners) {
                 AnnotationScanListener listener = (AnnotationScanListener) cListener;
                 if (listener.supportsAnnotation(ann.annotationType())) {
@@ -190,16 +221,16 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
      * we have to entirely remove the annotation
      * from our internal registry and the myfaces registry
      *
-     * @param clazz the class to have the annotation removed
+     * @param className the name of the class to have the annotation removed
      */
-    private void removeAnnotations(Class clazz) {
-        String registeredAnnotation = _registeredAnnotations.get(clazz.getName());
+    private void removeAnnotations(String className) {
+        String registeredAnnotation = _registeredAnnotations.get(className);
         if (registeredAnnotation != null) {
             for (ClassScanListener cListener : _listeners) {
                 AnnotationScanListener listener = (AnnotationScanListener) cListener;
                 if (listener.supportsAnnotation(registeredAnnotation)) {
-                    listener.purge(clazz.getName());
-                    _registeredAnnotations.remove(clazz.getName());
+                    listener.purge(className);
+                    _registeredAnnotations.remove(className);
                     //WeavingContext.getFileChangedDaemon().getClassMap().remove(clazz.getName());
                 }
             }
@@ -218,4 +249,18 @@ public class GenericAnnotationScanner extends BaseAnnotationScanListener impleme
     public void scanAndMarkChange() {
         //do nothing here
     }
+
+    /**
+     * a class loaded and filtered by the monitor,
+     * a null class marks a purged registration
+     */
+    static final class PreparedClass {
+        final Class<?> _clazz;
+        final Collection<java.lang.annotation.Annotation> _annotations;
+
+        PreparedClass(Class<?> clazz, Collection<java.lang.annotation.Annotation> annotations) {
+            _clazz = clazz;
+            _annotations = annotations;
+        }
+    }
 }
@@ -57,17 +57,7 @@ public class CompilerComponentRenderer extends Renderer {
                 result = WeavingContext.getInstance().getCompilationResult(ScriptingConst.ENGINE_TYPE_JSF_GROOVY);
                 break;
             case ScriptingConst.ENGINE_TYPE_JSF_ALL:
-                result = new CompilationResult("");
-                CompilationResult tempResult = WeavingContext.getInstance().getCompilationResult(ScriptingConst.ENGINE_TYPE_JSF_JAVA);
-                if (tempResult != null) {
-                    copyCompilationResult(result, tempResult);
-                }
-
-                tempResult = WeavingContext.getInstance().getCompilationResult(ScriptingConst.ENGINE_TYPE_JSF_GROOVY);
-                if (tempResult != null) {
-                    copyCompilationResult(result, tempResult);
-                }
-
+                result = WeavingContext.getInstance().getCompilationResult();
                 break;
             case ScriptingConst.ENGINE_TYPE_JSF_NO_ENGINE:
                 Logger log = Logger.getLogger(this.getClass().getName());
@@ -143,9 +133,4 @@ public class CompilerComponentRenderer extends Renderer {
             endDiv(responseWriter);
         }
     }
-
-    private void copyCompilationResult(CompilationResult result, CompilationResult tempResult) {
-        result.getErrors().addAll(tempResult.getErrors());
-        result.getWarnings().addAll(tempResult.getWarnings());
-    }
 }
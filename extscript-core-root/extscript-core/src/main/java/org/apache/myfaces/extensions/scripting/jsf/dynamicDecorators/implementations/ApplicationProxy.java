@@ -74,6 +74,8 @@ public class ApplicationProxy extends Application implements Decorated
 {
 
     Application _delegate = null;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     /*
     * separate map needed for the behavior ids, because
@@ -177,11 +179,14 @@ public class ApplicationProxy extends Application implements Decorated
 
     private void weaveDelegate()
     {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         if (_delegate != null)
         {
             _delegate = (Application) WeavingContext.getInstance().reload(_delegate,
                     ARTIFACT_TYPE_APPLICATION);
         }
+        _wovenGeneration = generation;
     }
 
     public ELResolver getELResolver()
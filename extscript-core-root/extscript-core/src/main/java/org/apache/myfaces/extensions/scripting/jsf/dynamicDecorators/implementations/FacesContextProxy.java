@@ -54,13 +54,18 @@ public class FacesContextProxy extends FacesContext implements Decorated
 {
 
     public FacesContext _delegate = null;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     private void weaveDelegate() {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         //in case of a context destroyed the weaver might be accessed a last time
         //but is already null due to having no weaver in the shutdown thread
         if (_delegate != null && WeavingContext.getInstance().isScriptingEnabled())
             _delegate = (FacesContext) WeavingContext.getInstance().reload(_delegate,
                     ScriptingConst.ARTIFACT_TYPE_FACESCONTEXT);
+        _wovenGeneration = generation;
     }
 
     public ELContext getELContext() {
@@ -38,10 +38,16 @@ public class LifefcycleProxy extends Lifecycle implements Decorated
 
     Lifecycle _delegate = null;
 
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
+
     private void weaveDelegate() {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         if (_delegate != null)
             _delegate = (Lifecycle) WeavingContext.getInstance().reload(_delegate,
                     ScriptingConst.ARTIFACT_TYPE_LIFECYCLE);
+        _wovenGeneration = generation;
     }
 
     public LifefcycleProxy(Lifecycle delegate) {
@@ -34,10 +34,15 @@ public class NavigationHandlerProxy extends NavigationHandler implements Decorat
 {
 
     NavigationHandler _delegate;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     private void weaveDelegate() {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         _delegate = (NavigationHandler) WeavingContext.getInstance().reload(_delegate,
                 ScriptingConst.ARTIFACT_TYPE_NAVIGATIONHANDLER);
+        _wovenGeneration = generation;
     }
 
     public NavigationHandlerProxy(NavigationHandler delegate) {
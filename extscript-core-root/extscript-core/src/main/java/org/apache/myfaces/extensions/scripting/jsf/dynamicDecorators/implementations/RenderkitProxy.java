@@ -44,6 +44,8 @@ public class RenderkitProxy extends RenderKit implements Decorated
 {
 
     RenderKit _delegate = null;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     public RenderkitProxy(RenderKit delegate)
     {
@@ -234,7 +236,10 @@ public class RenderkitProxy extends RenderKit implements Decorated
 
     private void weaveDelegate()
     {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         _delegate = (RenderKit) WeavingContext.getInstance().reload(_delegate, ScriptingConst.ARTIFACT_TYPE_RENDERKIT);
+        _wovenGeneration = generation;
     }
 
     private Object reloadInstance(Object instance, int artefactType)
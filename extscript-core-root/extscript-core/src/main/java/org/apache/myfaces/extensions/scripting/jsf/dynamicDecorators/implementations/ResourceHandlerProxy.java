@@ -43,6 +43,8 @@ import javax.faces.context.FacesContext;
 
 public class ResourceHandlerProxy extends ResourceHandler {
     private ResourceHandler _delegate;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     public ResourceHandlerProxy(ResourceHandler delegate) {
         _delegate = delegate;
@@ -84,7 +86,10 @@ public class ResourceHandlerProxy extends ResourceHandler {
     }
 
     private final void weaveDelegate() {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         _delegate = (ResourceHandler) WeavingContext.getInstance().reload(_delegate,
                 ScriptingConst.ARTIFACT_TYPE_RESOURCEHANDLER);
+        _wovenGeneration = generation;
     }
 }
@@ -40,6 +40,8 @@ import javax.faces.event.SystemEventListener;
 public class SystemEventListenerProxy implements Decorated, SystemEventListener {
 
     SystemEventListener _delegate;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     public SystemEventListenerProxy(SystemEventListener delegate) {
         _delegate = delegate;
@@ -61,10 +63,12 @@ public class SystemEventListenerProxy implements Decorated, SystemEventListener
     }
 
     private void weaveDelegate() {
-        //TODO (1.1) add a speed optimization here by pushing something in the request map
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         if (_delegate != null) {
             _delegate = (SystemEventListener) WeavingContext.getInstance().reload(_delegate,
                     ScriptingConst.ARTIFACT_TYPE_SYSTEMEVENTLISTENER);
         }
+        _wovenGeneration = generation;
     }
 }
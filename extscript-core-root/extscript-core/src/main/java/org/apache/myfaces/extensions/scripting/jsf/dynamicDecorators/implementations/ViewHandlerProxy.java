@@ -42,12 +42,17 @@ public class ViewHandlerProxy extends ViewHandler implements Decorated
 {
 
     ViewHandler _delegate = null;
+    /*reload generation the delegate has been woven at, the weaving is skipped while it is current*/
+    volatile long _wovenGeneration = -1;
 
     private void weaveDelegate() {
+        long generation = WeavingContext.getInstance().getReloadGeneration();
+        if (generation == _wovenGeneration) return;
         if (_delegate != null) {
             _delegate = (ViewHandler) WeavingContext.getInstance().reload(_delegate,
                     ScriptingConst.ARTIFACT_TYPE_VIEWHANDLER);
         }
+        _wovenGeneration = generation;
     }
 
     public ViewHandlerProxy(ViewHandler delegate) {
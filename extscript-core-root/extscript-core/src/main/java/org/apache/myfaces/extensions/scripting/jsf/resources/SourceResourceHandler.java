@@ -47,76 +47,39 @@ public class SourceResourceHandler extends ResourceHandlerWrapper
 
     public Resource createResource(final String resourceName, final String libraryName)
     {
-        List<String> resourceRoots = WeavingContext.getInstance().getConfiguration().getResourceDirs();
-        if (resourceRoots == null || resourceRoots.isEmpty())
+        File resourceFile = resolveSourceResource(resourceName, libraryName);
+        if (resourceFile != null)
         {
-            return _wrapped.createResource(resourceName, libraryName);
-        }
-
-        for (String resourceRoot : resourceRoots)
-        {
-            File resourceFile = new File(buildStdResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
-            resourceFile = new File(buildMetaInfResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
-            resourceFile = new File(buildRootResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
+            return new SourceResource(libraryName, resourceName, resourceFile);
         }
         return _wrapped.createResource(resourceName, libraryName);
     }
 
     public Resource createResource(final String resourceName, final String libraryName, String contentType)
     {
-        List<String> resourceRoots = WeavingContext.getInstance().getConfiguration().getResourceDirs();
-        if (resourceRoots == null || resourceRoots.isEmpty())
+        File resourceFile = resolveSourceResource(resourceName, libraryName);
+        if (resourceFile != null)
         {
-            return _wrapped.createResource(resourceName, libraryName);
-        }
-
-        for (String resourceRoot : resourceRoots)
-        {
-            File resourceFile = new File(buildStdResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
-            resourceFile = new File(buildMetaInfResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
-            resourceFile = new File(buildRootResourceDir(resourceName, libraryName, resourceRoot));
-            if (resourceFile.exists())
-            {
-                return new SourceResource(libraryName, resourceName, resourceFile);
-            }
-
+            return new SourceResource(libraryName, resourceName, resourceFile);
         }
         return _wrapped.createResource(resourceName, libraryName);
     }
 
-    private String buildMetaInfResourceDir(String resourceName, String libraryName, String resourceRoot)
+    /**
+     * looks the resource up in the resource dirs, the resolutions
+     * are cached until the monitor detects a change in the resource dirs
+     *
+     * @return the resource file or null if the resource is not hosted by a resource dir
+     */
+    private File resolveSourceResource(String resourceName, String libraryName)
     {
-        return resourceRoot + "/META-INF/resources/" + libraryName + "/" + resourceName;
-    }
-
-    private String buildStdResourceDir(String resourceName, String libraryName, String resourceRoot)
-    {
-        return resourceRoot + "/resources/" + libraryName + "/" + resourceName;
-    }
-
-    private String buildRootResourceDir(String resourceName, String libraryName, String resourceRoot)
-    {
-        return resourceRoot + "/" + libraryName + "/" + resourceName;
+        WeavingContext context = WeavingContext.getInstance();
+        List<String> resourceRoots = context.getConfiguration().getResourceDirs();
+        if (resourceRoots == null || resourceRoots.isEmpty())
+        {
+            return null;
+        }
+        return context.getResourcePathCache().resolve(resourceRoots, libraryName, resourceName);
     }
 
     @Override
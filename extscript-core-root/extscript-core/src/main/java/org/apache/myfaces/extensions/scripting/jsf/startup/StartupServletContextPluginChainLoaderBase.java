@@ -125,7 +125,14 @@ public class StartupServletContextPluginChainLoaderBase
     {
         //context is destroyed we have to shut down our daemon as well, by giving it
         //a hint to shutdown
-        ResourceMonitor.getInstance().setRunning(false);
+        ResourceMonitor monitor = ResourceMonitor.getInstance();
+        if (monitor != null)
+        {
+            monitor.setRunning(false);
+            monitor.stopIt();
+        }
+        //the worker pools would keep the webapp classloader alive otherwise
+        WeavingContext.getInstance().shutdown();
         for (Plugin plugin : _plugins)
         {
             plugin.postDestroy(evt);
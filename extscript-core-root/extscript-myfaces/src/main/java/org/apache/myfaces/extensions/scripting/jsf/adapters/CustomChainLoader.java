@@ -118,7 +118,7 @@ public class CustomChainLoader extends ClassLoaderExtension
     {
         File targetDirectory = WeavingContext.getInstance().getConfiguration().getCompileTarget();
         File target = ClassUtils.classNameToFile(targetDirectory.getAbsolutePath(), name);
-        if (!target.exists()) return null;
+        if (!WeavingContext.getInstance().getClassStore().containsClass(name) && !target.exists()) return null;
         //otherwise check if tainted and if not simply return the class stored
 
         ClassResource resource = (ClassResource) WeavingContext.getInstance().getResource(name);
@@ -54,6 +54,14 @@ public class MyFacesSPI implements ImplementationService
         beanHandler.refreshAllManagedBeans();
     }
 
+    /**
+     * @return the bean handler which keeps the managed bean index
+     */
+    public MyFacesBeanHandler getBeanHandler()
+    {
+        return beanHandler;
+    }
+
     public Class forName(String clazz)
     {
         return _loader.forName(clazz);
@@ -33,13 +33,18 @@ import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.common.util.ReflectUtil;
 import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
 
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
+import javax.servlet.http.HttpSession;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,7 +52,12 @@ import java.util.logging.Logger;
  * Bean handler implementation
  * which encapsulates the myfaces specific parts
  * of the bean processing
- *
+ * <p>&nbsp;</p>
+ * The beans are invalidated lazily, every session keeps the taint sequence
+ * it has been refreshed for and on its next visit only drops the beans
+ * whose classes have been tainted since then. The sequence is stored together
+ * with the id of the current run, a session from another run gets all its
+ * dynamic beans dropped.
  *
  */
 public class MyFacesBeanHandler
@@ -55,6 +65,36 @@ public class MyFacesBeanHandler
 
     static final Logger _logger = Logger.getLogger(MyFacesBeanHandler.class.getName());
 
+    /**
+     * the taint sequences only are valid within one run of the application,
+     * sessions persisted over a restart have to be refreshed entirely
+     */
+    static final long RUN_START = System.currentTimeMillis();
+    static final String RUN_ID = Long.toString(RUN_START, Character.MAX_RADIX);
+
+    /*separator between the run id and the sequence in the refresh mark of the session*/
+    static final char MARK_SEPARATOR = ':';
+
+    /**
+     * bean names per managed bean class name, maintained at registration time
+     */
+    private final Map<String, Set<String>> _beanNamesByClass = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * reverse index, managed bean name to class name
+     */
+    private final Map<String, String> _classByBeanName = new ConcurrentHashMap<String, String>();
+
+    /**
+     * the beans from the faces configs are added once on the first refresh
+     */
+    private volatile boolean _indexInitialized = false;
+
+    /**
+     * the taint sequence the application wide bean references have been refreshed for
+     */
+    private final AtomicLong _applicationSequence = new AtomicLong(0);
+
     /**
      * constructor
      */
@@ -74,127 +114,223 @@ public class MyFacesBeanHandler
      * <li> page scope </li>
      * <li> custom scope </li>
      * </ul>
+     * <p>&nbsp;</p>
+     * As long as no compile has happened since the last visit
+     * of the session this is a single lookup in the session map
      */
     public void refreshAllManagedBeans()
     {
-        if (FacesContext.getCurrentInstance() == null)
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext == null)
         {
             return;//no npe allowed
         }
+        long sequence = WeavingContext.getInstance().getPublishedTaintSequence();
+        if (sequence == 0)
+        {
+            return;//no compile has happened yet
+        }
+        ExternalContext externalContext = facesContext.getExternalContext();
+        refreshApplicationScope(externalContext, sequence);
+        refreshSessionScope(externalContext, sequence);
+    }
 
-        Collection<ClassResource> tainted = WeavingContext.getInstance().getTaintedClasses();
-        Set<String> taints = new HashSet<String>();
-        for (ClassResource taintedClass : tainted)
+    /**
+     * drops the stale application and custom scoped beans,
+     * this happens only once per compile cycle
+     *
+     * @param externalContext the current external context
+     * @param sequence        the published taint sequence
+     */
+    private void refreshApplicationScope(ExternalContext externalContext, long sequence)
+    {
+        long lastSequence = _applicationSequence.get();
+        if (lastSequence >= sequence || !_applicationSequence.compareAndSet(lastSequence, sequence))
         {
-            if(taintedClass.getAClass() != null) {
-                taints.add(taintedClass.getAClass().getName());
+            return;
+        }
+        Map<String, Object> applicationMap = externalContext.getApplicationMap();
+        for (String beanName : getStaleBeanNames(externalContext, lastSequence))
+        {
+            if (getLog().isLoggable(Level.FINE))
+            {
+                getLog().log(Level.FINE, "[EXT-SCRIPTING] removing application reference of {0}", beanName);
             }
+            applicationMap.remove(beanName);
+            removeCustomScopedBean(externalContext, beanName);
         }
+    }
 
-        //scanElDependencies();
-
-        if (taints.size() > 0)
+    /**
+     * drops the beans of the current session whose classes
+     * have been tainted since the last visit of the session
+     *
+     * @param externalContext the current external context
+     * @param sequence        the published taint sequence
+     */
+    private void refreshSessionScope(ExternalContext externalContext, long sequence)
+    {
+        Object session = externalContext.getSession(false);
+        if (session == null)
         {
-            //We now have to check if the tainted classes belong to the managed beans
-            Set<String> managedBeanClasses = new HashSet<String>();
-
-            Map mbeans = RuntimeConfig.getCurrentInstance(FacesContext.getCurrentInstance().getExternalContext()).getManagedBeans();
-            Map mbeansSnapshotView;
-
-            //synchronized (RefreshContext.BEAN_SYNC_MONITOR) {
-            mbeansSnapshotView = makeSnapshot(mbeans);
-            //}
-
-            for (Object entry : mbeansSnapshotView.entrySet())
+            return;//no session no session scoped beans
+        }
+        Map<String, Object> sessionMap = externalContext.getSessionMap();
+        String mark = RUN_ID + MARK_SEPARATOR + sequence;
+        if (mark.equals(sessionMap.get(ScriptingConst.SESS_BEAN_REFRESH_TIMER)))
+        {
+            return;
+        }
+        //concurrent requests of the session have to wait until the stale beans are gone
+        synchronized (session)
+        {
+            Object lastMark = sessionMap.get(ScriptingConst.SESS_BEAN_REFRESH_TIMER);
+            long lastSequence = getRefreshedSequence(lastMark, session);
+            if (lastSequence >= sequence)
             {
-                Object bean = (Object) ((Map.Entry) entry).getValue();
-
-                managedBeanClasses.add((String) ReflectUtil.executeMethod(bean, "getManagedBeanClassName"));//bean.getManagedBeanClassName());
+                return;
             }
-
-            boolean managedBeanTainted = isAnyManagedBeanTainted(taints, managedBeanClasses);
-            markPersonalScopeRefreshRecommended();
-            getLog().info("[EXT-SCRIPTING] Tainting all beans to avoid classcast exceptions");
-            if (managedBeanTainted)
+            //a session created after the last compile only holds beans of the current classes
+            //an older one never has been refreshed, so we have to check the entire history
+            if (lastMark != null || !isCreatedAfterLastCompile(session))
             {
-                globalManagedBeanRefresh(mbeansSnapshotView);
-                //personalScopeRefresh();
+                Set<String> staleBeanNames = (lastSequence < 0) ? getDynamicBeanNames(externalContext) :
+                        getStaleBeanNames(externalContext, lastSequence);
+                for (String beanName : staleBeanNames)
+                {
+                    if (getLog().isLoggable(Level.FINE))
+                    {
+                        getLog().log(Level.FINE, "[EXT-SCRIPTING] removing session reference of {0}", beanName);
+                    }
+                    sessionMap.remove(beanName);
+                }
             }
+            sessionMap.put(ScriptingConst.SESS_BEAN_REFRESH_TIMER, mark);
         }
     }
 
-
     /**
-     * removes all bean references which have been tainted
-     * (note for now we remove all dynamic references until we
-     * get a more sophisticated handling of managed beans)
-     *
-     * @param workCopy the managed beam snapshot view
+     * @param mark    the refresh mark stored in the session
+     * @param session the current session
+     * @return the sequence the session has been refreshed for, 0 if it never has been refreshed
+     *         and -1 if the session stems from another run or the mark from an older version
      */
-    private void globalManagedBeanRefresh(Map workCopy)
+    private long getRefreshedSequence(Object mark, Object session)
     {
-        Collection<ClassResource> tainted = WeavingContext.getInstance().getTaintedClasses();
-        Set<String> taints = new HashSet<String>();
-        for (ClassResource taintedClass : tainted)
+        if (mark == null)
+        {
+            boolean persisted = session instanceof HttpSession && ((HttpSession) session).getCreationTime() < RUN_START;
+            return persisted ? -1 : 0;
+        }
+        String markString = mark.toString();
+        int separator = markString.lastIndexOf(MARK_SEPARATOR);
+        if (!(mark instanceof String) || separator == -1 || !RUN_ID.equals(markString.substring(0, separator)))
+        {
+            return -1;
+        }
+        try
         {
-            if(taintedClass.getAClass() != null)
-                taints.add(taintedClass.getAClass().getName());
+            return Long.parseLong(markString.substring(separator + 1));
         }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private boolean isCreatedAfterLastCompile(Object session)
+    {
+        return session instanceof HttpSession &&
+                ((HttpSession) session).getCreationTime() > WeavingContext.getInstance().getLastPublish();
+    }
 
-        for (Object entry : workCopy.entrySet())
+    /**
+     * resolves the names of the managed beans whose classes
+     * have been tainted after the given sequence
+     *
+     * @param externalContext the current external context
+     * @param sequence        the taint sequence of the last refresh
+     * @return the names of the beans which have to be dropped
+     */
+    private Set<String> getStaleBeanNames(ExternalContext externalContext, long sequence)
+    {
+        initIndex(externalContext);
+        WeavingContext weavingContext = WeavingContext.getInstance();
+        Set<String> retVal = new HashSet<String>();
+        if (weavingContext.isTaintHistoryComplete(sequence))
         {
-            Object bean = ((Map.Entry) entry).getValue();
-            Class managedBeanClass = (Class) ReflectUtil.executeMethod(bean, "getManagedBeanClass");
-            if (hasToBeRefreshed(taints, managedBeanClass))
+            for (ClassResource tainted : weavingContext.getTaintHistorySince(sequence))
             {
-                //managed bean class found we drop the class from our session
-                removeBeanReferences(bean);
+                Set<String> beanNames = _beanNamesByClass.get(tainted.getIdentifier());
+                if (beanNames != null)
+                {
+                    retVal.addAll(beanNames);
+                }
             }
+            return retVal;
         }
+        //the history has been overrun, we have to treat every dynamic bean as stale
+        return getDynamicBeanNames(externalContext);
     }
 
     /**
-     * determines whether any bean in our managed bean list
-     * is tainted or not
-     *
-     * @param tainted            a list of classes which are tainted in this iteration
-     * @param managedBeanClasses a ist of classes which are our managed beans
-     * @return true if one of the beans is tainted
+     * @param externalContext the current external context
+     * @return the names of all managed beans whose classes are dynamic
      */
-    private boolean isAnyManagedBeanTainted(Set<String> tainted, Set<String> managedBeanClasses)
+    private Set<String> getDynamicBeanNames(ExternalContext externalContext)
     {
-        boolean managedBeanTainted = false;
-        for (String taintedClass : tainted)
+        initIndex(externalContext);
+        WeavingContext weavingContext = WeavingContext.getInstance();
+        Set<String> retVal = new HashSet<String>();
+        for (Map.Entry<String, Set<String>> entry : _beanNamesByClass.entrySet())
         {
-            if (managedBeanClasses.contains(taintedClass))
+            if (weavingContext.getWatchedResource(entry.getKey()) != null)
             {
-                managedBeanTainted = true;
-                break;
+                retVal.addAll(entry.getValue());
             }
         }
-        return managedBeanTainted;
+        return retVal;
     }
 
     /**
-     * removes the references from out static scope
-     * for jsf2 we probably have some kind of notification mechanism
-     * which notifies custom scopes
+     * adds the beans already known to the runtime config to our index,
+     * later registrations are indexed by the annotation scan
      *
-     * @param bean the managed bean which all references have to be removed from
+     * @param externalContext the current external context
      */
-
-    private void removeBeanReferences(Object bean)
+    private void initIndex(ExternalContext externalContext)
     {
-        String managedBeanName = (String) ReflectUtil.executeMethod(bean, "getManagedBeanName");
-
-        if (getLog().isLoggable(Level.FINE))
+        if (_indexInitialized) return;
+        synchronized (this)
         {
-            getLog().log(Level.FINE, "[EXT-SCRIPTING] JavaScriptingWeaver.removeBeanReferences({0})", managedBeanName);
+            if (_indexInitialized) return;
+            Map mbeans = RuntimeConfig.getCurrentInstance(externalContext).getManagedBeans();
+            for (Object elem : makeSnapshot(mbeans).entrySet())
+            {
+                Map.Entry entry = (Map.Entry) elem;
+                String beanName = (String) entry.getKey();
+                if (_classByBeanName.containsKey(beanName)) continue;
+                indexBean((String) ReflectUtil.executeMethod(entry.getValue(), "getManagedBeanClassName"), beanName);
+            }
+            _indexInitialized = true;
         }
+    }
 
-        FacesContext.getCurrentInstance().getExternalContext().getSessionMap().remove(managedBeanName);
-        FacesContext.getCurrentInstance().getExternalContext().getApplicationMap().remove(managedBeanName);
-        removeCustomScopedBean(bean);
+    private synchronized void indexBean(String className, String beanName)
+    {
+        String oldClassName = _classByBeanName.put(beanName, className);
+        if (oldClassName != null && !oldClassName.equals(className))
+        {
+            Set<String> oldNames = _beanNamesByClass.get(oldClassName);
+            if (oldNames != null) oldNames.remove(beanName);
+        }
+        Set<String> beanNames = _beanNamesByClass.get(className);
+        if (beanNames == null)
+        {
+            beanNames = new CopyOnWriteArraySet<String>();
+            _beanNamesByClass.put(className, beanNames);
+        }
+        beanNames.add(beanName);
     }
 
     /**
@@ -208,18 +344,21 @@ public class MyFacesBeanHandler
     /**
      * jsf2 helper to remove custom scoped beans
      *
-     * @param bean the managed bean which has to be removed from the custom scope from
+     * @param externalContext the current external context
+     * @param beanName        the name of the managed bean which has to be removed from the custom scope
      */
-    private void removeCustomScopedBean(Object bean)
+    private void removeCustomScopedBean(ExternalContext externalContext, String beanName)
     {
-        Object scopeImpl = FacesContext.getCurrentInstance().getExternalContext().getApplicationMap().get(ReflectUtil.executeMethod(bean, "getManagedBeanScope"));
+        Object bean = RuntimeConfig.getCurrentInstance(externalContext).getManagedBeans().get(beanName);
+        if (bean == null) return;
+        Object scopeImpl = externalContext.getApplicationMap().get(ReflectUtil.executeMethod(bean, "getManagedBeanScope"));
         if (scopeImpl == null) return; //scope not implemented
         //we now have to revert to introspection here because scopes are a pure jsf2 construct
         //so we use a messaging pattern here to cope with it
 
-        Object beanInstance = ReflectUtil.executeMethod(scopeImpl, "get", ReflectUtil.executeMethod(bean, "getManagedBeanName"));
+        Object beanInstance = ReflectUtil.executeMethod(scopeImpl, "get", beanName);
         LifecycleProvider lifecycleProvider =
-                LifecycleProviderFactory.getLifecycleProviderFactory().getLifecycleProvider(FacesContext.getCurrentInstance().getExternalContext());
+                LifecycleProviderFactory.getLifecycleProviderFactory().getLifecycleProvider(externalContext);
         try
         {
             lifecycleProvider.destroyInstance(beanInstance);
@@ -259,36 +398,32 @@ public class MyFacesBeanHandler
     }
 
     /**
-     * sets the internal timer for other processes
-     * to update their beans as well
+     * adds a managed bean to the class to bean name index
+     *
+     * @param clazz    the class of the managed bean
+     * @param beanName the name of the managed bean
      */
-    private void markPersonalScopeRefreshRecommended()
+    public void registerManagedBean(Class<?> clazz, String beanName)
     {
-        long sessionRefreshTime = System.currentTimeMillis();
-        // WeavingContext.getRefreshContext().setPersonalScopedBeanRefresh(sessionRefreshTime);
-        FacesContext.getCurrentInstance().getExternalContext().getSessionMap().put(ScriptingConst.SESS_BEAN_REFRESH_TIMER, sessionRefreshTime);
+        indexBean(clazz.getName(), beanName);
     }
 
     /**
-     * important, this method determines whether a managed bean class
-     * has to be refreshed or not
+     * removes all managed beans of the given class from the index
      *
-     * @param tainted          set of tainted classes
-     * @param managedBeanClass the class to be checked for refresh criteria
-     * @return true if the current bean class fulfills our refresh criteria
+     * @param className the class name of the purged managed beans
      */
-    protected boolean hasToBeRefreshed(Set<String> tainted, Class managedBeanClass)
+    public synchronized void removeManagedBean(String className)
     {
-
-        return WeavingContext.getInstance().isDynamic(managedBeanClass) && tainted.contains(managedBeanClass.getName());
+        Set<String> beanNames = _beanNamesByClass.remove(className);
+        if (beanNames == null) return;
+        for (String beanName : beanNames)
+        {
+            if (className.equals(_classByBeanName.get(beanName)))
+            {
+                _classByBeanName.remove(beanName);
+            }
+        }
     }
 
-    public  void registerManagedBean(Class clazz, String beanName) {
-        //TODO move this over from the beanimplementationListener
-    }
-    public  void removeManagedBean(String className) {
-        //TODO move this over from the beanimplementationlistener
-    }
-        
 }
-
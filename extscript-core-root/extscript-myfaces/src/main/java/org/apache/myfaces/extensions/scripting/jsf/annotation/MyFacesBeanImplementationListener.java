@@ -23,8 +23,12 @@ import org.apache.myfaces.config.element.ManagedBean;
 import org.apache.myfaces.config.element.NavigationRule;
 
 import org.apache.myfaces.extensions.scripting.core.api.AnnotationScanListener;
+import org.apache.myfaces.extensions.scripting.core.api.ImplementationService;
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
 import org.apache.myfaces.extensions.scripting.core.common.util.ReflectUtil;
 import org.apache.myfaces.extensions.scripting.core.common.util.StringUtils;
+import org.apache.myfaces.extensions.scripting.jsf.adapters.MyFacesSPI;
+import org.apache.myfaces.extensions.scripting.jsf.adapters.handlers.MyFacesBeanHandler;
 
 import javax.faces.bean.ApplicationScoped;
 import javax.faces.bean.CustomScoped;
@@ -109,6 +113,19 @@ public class MyFacesBeanImplementationListener extends BaseAnnotationScanListene
 
         _alreadyRegistered.put(beanName, mbean);
         config.addManagedBean(beanName, mbean);
+        MyFacesBeanHandler beanHandler = getBeanHandler();
+        if (beanHandler != null) {
+            beanHandler.registerManagedBean(clazz, beanName);
+        }
+    }
+
+    /**
+     * @return the bean handler of the myfaces implementation service
+     *         which keeps our class to bean name index, null if another implementation is active
+     */
+    protected MyFacesBeanHandler getBeanHandler() {
+        ImplementationService implementation = WeavingContext.getInstance().getImplementation();
+        return (implementation instanceof MyFacesSPI) ? ((MyFacesSPI) implementation).getBeanHandler() : null;
     }
 
     private void resolveScope(Class clazz, ManagedBean mbean) {
@@ -248,6 +265,10 @@ public class MyFacesBeanImplementationListener extends BaseAnnotationScanListene
                 _alreadyRegistered.remove(toRemove);
             }
         }
+        MyFacesBeanHandler beanHandler = getBeanHandler();
+        if (beanHandler != null) {
+            beanHandler.removeManagedBean(className);
+        }
     }
 
     protected RuntimeConfig getRuntimeConfig() {
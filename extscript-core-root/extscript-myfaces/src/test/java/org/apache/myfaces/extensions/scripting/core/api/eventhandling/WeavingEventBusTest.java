@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.api.eventhandling;
+
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.BeginCompiling;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.TaintedEvent;
+import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class WeavingEventBusTest
+{
+    static class RecordingListener implements WeavingEventListener
+    {
+        final List<WeavingEvent> _events = new CopyOnWriteArrayList<WeavingEvent>();
+        final CountDownLatch _latch;
+        volatile Thread _thread;
+
+        RecordingListener(int expected)
+        {
+            _latch = new CountDownLatch(expected);
+        }
+
+        public void onEvent(WeavingEvent evt)
+        {
+            _thread = Thread.currentThread();
+            _events.add(evt);
+            _latch.countDown();
+        }
+    }
+
+    WeavingEventBus _bus;
+
+    @Before
+    public void init()
+    {
+        _bus = new WeavingEventBus();
+    }
+
+    @Test
+    public void testTypedSubscription()
+    {
+        RecordingListener all = new RecordingListener(2);
+        RecordingListener tainted = new RecordingListener(1);
+        _bus.subscribe(all);
+        _bus.subscribe(TaintedEvent.class, tainted, false);
+
+        _bus.send(new BeginCompiling());
+        _bus.send(new TaintedEvent(new ClassResource()));
+
+        assertEquals(2, all._events.size());
+        assertEquals(1, tainted._events.size());
+        assertTrue(tainted._events.get(0) instanceof TaintedEvent);
+    }
+
+    @Test
+    public void testTaintBatch()
+    {
+        RecordingListener tainted = new RecordingListener(1);
+        _bus.subscribe(TaintedEvent.class, tainted, false);
+
+        _bus.addTainted(new ClassResource());
+        _bus.addTainted(new ClassResource());
+        _bus.addTainted(new ClassResource());
+        assertTrue("nothing is sent before the flush", tainted._events.isEmpty());
+
+        _bus.flushTainted();
+        _bus.flushTainted();
+        assertEquals(1, tainted._events.size());
+        assertEquals(3, ((TaintedEvent) tainted._events.get(0)).getResources().size());
+    }
+
+    @Test
+    public void testAsyncDispatch() throws Exception
+    {
+        RecordingListener async = new RecordingListener(2);
+        _bus.subscribe(WeavingEvent.class, async, true);
+
+        _bus.send(new BeginCompiling());
+        _bus.send(new TaintedEvent(new ClassResource()));
+
+        assertTrue(async._latch.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), async._thread);
+        assertTrue("events keep their order", async._events.get(0) instanceof BeginCompiling);
+    }
+
+    @Test
+    public void testShutdown() throws Exception
+    {
+        RecordingListener async = new RecordingListener(1);
+        _bus.subscribe(WeavingEvent.class, async, true);
+
+        _bus.send(new BeginCompiling());
+        assertTrue(async._latch.await(5, TimeUnit.SECONDS));
+        _bus.shutdown();
+
+        _bus.send(new BeginCompiling());
+        assertEquals("delivered on the sending thread after the shutdown", 2, async._events.size());
+        assertSame(Thread.currentThread(), async._thread);
+    }
+
+    @Test
+    public void testUnsubscribe()
+    {
+        RecordingListener listener = new RecordingListener(1);
+        _bus.subscribe(listener);
+        _bus.subscribe(TaintedEvent.class, listener, false);
+        _bus.unsubscribe(listener);
+
+        _bus.send(new BeginCompiling());
+        assertTrue(listener._events.isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.SessionScoped;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ *
+ * Testcase for the bytecode based annotation index
+ */
+
+public class AnnotationIndexTest
+{
+    @ManagedBean
+    @SessionScoped
+    public static class AnnotatedProbe
+    {
+    }
+
+    @Deprecated
+    public static class PlainProbe
+    {
+    }
+
+    static final String ANNOTATED = AnnotatedProbe.class.getName();
+    static final String PLAIN = PlainProbe.class.getName();
+
+    AnnotationIndex _index;
+    ClassLoader _loader;
+
+    @Before
+    public void init()
+    {
+        _index = new AnnotationIndex();
+        _loader = AnnotationIndexTest.class.getClassLoader();
+    }
+
+    private Set<String> existing(String... classNames)
+    {
+        return new HashSet<String>(Arrays.asList(classNames));
+    }
+
+    @Test
+    public void testFacesAnnotationsIndexed()
+    {
+        _index.update(_loader, Arrays.asList(ANNOTATED, PLAIN), existing(ANNOTATED, PLAIN));
+        Set<String> annotations = _index.getAnnotations(ANNOTATED);
+        assertTrue("managed bean found", annotations.contains(ManagedBean.class.getName()));
+        assertTrue("scope found", annotations.contains(SessionScoped.class.getName()));
+        assertTrue("non jsf annotations are ignored", _index.getAnnotations(PLAIN).isEmpty());
+    }
+
+    @Test
+    public void testRegisterChanges()
+    {
+        _index.update(_loader, Arrays.asList(ANNOTATED, PLAIN), existing(ANNOTATED, PLAIN));
+        assertTrue(_index.hasChanges());
+        AnnotationIndex.Changes changes = _index.fetchChanges();
+        assertTrue(changes.getRegistered().contains(ANNOTATED));
+        assertFalse("classes without jsf annotations are not registered", changes.getRegistered().contains(PLAIN));
+        assertTrue(changes.getPurged().isEmpty());
+        assertFalse("changes are reset on fetch", _index.hasChanges());
+    }
+
+    @Test
+    public void testPurgeOnDelete()
+    {
+        _index.update(_loader, Arrays.asList(ANNOTATED), existing(ANNOTATED));
+        _index.fetchChanges();
+        _index.update(_loader, Arrays.asList(ANNOTATED, PLAIN), Collections.<String>emptySet());
+        AnnotationIndex.Changes changes = _index.fetchChanges();
+        assertTrue(changes.getPurged().contains(ANNOTATED));
+        assertFalse("never registered classes are not purged", changes.getPurged().contains(PLAIN));
+        assertTrue(changes.getRegistered().isEmpty());
+        assertTrue(_index.getAnnotations(ANNOTATED).isEmpty());
+    }
+
+    @Test
+    public void testLastChangeWins()
+    {
+        _index.update(_loader, Arrays.asList(ANNOTATED), existing(ANNOTATED));
+        _index.update(_loader, Arrays.asList(ANNOTATED), Collections.<String>emptySet());
+        AnnotationIndex.Changes changes = _index.fetchChanges();
+        assertTrue(changes.getRegistered().isEmpty());
+        assertTrue(changes.getPurged().contains(ANNOTATED));
+    }
+}
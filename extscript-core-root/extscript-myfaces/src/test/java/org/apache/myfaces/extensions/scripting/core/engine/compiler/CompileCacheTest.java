@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.engine.compiler;
+
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
+import org.apache.myfaces.extensions.scripting.core.monitor.ClassResource;
+import org.apache.myfaces.extensions.scripting.core.support.PathUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class CompileCacheTest
+{
+    private static final String[] CLASSES = {"CacheProbeA", "CacheProbeB", "CacheProbeC", "CacheProbeD"};
+    private static final String CLASSPATH_CHANGE = "cacheProbeClasspathChange";
+
+    File _sourceDir;
+    File _cacheDir;
+    Map<String, ClassResource> _resources;
+    CompiledClassStore _store;
+    ClassDependencies _dependencies;
+
+    /**
+     * the identifier normally is derived from the source dirs of the engine,
+     * we do not have an engine here
+     */
+    static class ProbeResource extends ClassResource
+    {
+        final String _className;
+
+        ProbeResource(String className, File sourceFile)
+        {
+            _className = className;
+            setFile(sourceFile);
+        }
+
+        @Override
+        public String getIdentifier()
+        {
+            return _className;
+        }
+    }
+
+    @Before
+    public void init() throws IOException
+    {
+        _sourceDir = PathUtils.createTempDir("sources");
+        _cacheDir = PathUtils.createTempDir("cache");
+        _resources = new HashMap<String, ClassResource>();
+        //B refers to A, C refers to B, D is independent
+        _dependencies = new ClassDependencies();
+        _dependencies.addDependency("CacheProbeB", "CacheProbeA");
+        _dependencies.addDependency("CacheProbeC", "CacheProbeB");
+        //the compiled classes have to be newer than their sources to be stored
+        _store = WeavingContext.getInstance().getClassStore();
+        long compiled = System.currentTimeMillis() + 60000;
+        for (String className : CLASSES)
+        {
+            File sourceFile = new File(_sourceDir, className + ".java");
+            PathUtils.write(sourceFile, "class " + className + " {}");
+            _resources.put(className, new ProbeResource(className, sourceFile));
+            _store.restore(className, new byte[]{1, 2, 3}, compiled);
+        }
+        new CompileCache(_cacheDir).store(_resources, _dependencies, _store);
+        for (String className : CLASSES)
+        {
+            _store.remove(className);
+        }
+    }
+
+    @After
+    public void cleanup()
+    {
+        for (String className : CLASSES)
+        {
+            _store.remove(className);
+        }
+        WeavingContext.getInstance().getConfiguration().getAdditionalClassPath().remove(CLASSPATH_CHANGE);
+        PathUtils.delete(_sourceDir);
+        PathUtils.delete(_cacheDir);
+    }
+
+    @Test
+    public void testUnchangedSourcesAreRestored()
+    {
+        assertEquals(4, new CompileCache(_cacheDir).restore(_resources, _store));
+        for (String className : CLASSES)
+        {
+            assertTrue(_store.containsClass(className));
+        }
+    }
+
+    @Test
+    public void testChangedSourceInvalidatesReferrers() throws IOException
+    {
+        PathUtils.write(_resources.get("CacheProbeA").getFile(), "class CacheProbeA { int changed; }");
+
+        assertEquals(1, new CompileCache(_cacheDir).restore(_resources, _store));
+        assertFalse(_store.containsClass("CacheProbeA"));
+        assertFalse(_store.containsClass("CacheProbeB"));
+        assertFalse(_store.containsClass("CacheProbeC"));
+        assertTrue(_store.containsClass("CacheProbeD"));
+    }
+
+    @Test
+    public void testDeletedSourceInvalidatesReferrers()
+    {
+        ClassResource deleted = _resources.remove("CacheProbeA");
+        assertTrue(deleted.getFile().delete());
+
+        assertEquals(1, new CompileCache(_cacheDir).restore(_resources, _store));
+        assertFalse(_store.containsClass("CacheProbeB"));
+        assertFalse(_store.containsClass("CacheProbeC"));
+        assertTrue(_store.containsClass("CacheProbeD"));
+        //the cached classes of the deleted source are gone as well
+        assertFalse(new File(new File(_cacheDir, CompileCache.CLASSES_DIR), "CacheProbeA.class").exists());
+    }
+
+    @Test
+    public void testIndexOnlyWrittenOnChange()
+    {
+        CompileCache cache = new CompileCache(_cacheDir);
+        assertEquals(4, cache.restore(_resources, _store));
+        File indexFile = new File(_cacheDir, CompileCache.INDEX_FILE);
+        assertTrue(indexFile.delete());
+
+        cache.store(_resources, _dependencies, _store);
+        assertFalse("nothing has changed", indexFile.exists());
+
+        _dependencies.addDependency("CacheProbeD", "CacheProbeA");
+        cache.store(_resources, _dependencies, _store);
+        assertTrue("the referrers of CacheProbeA have changed", indexFile.exists());
+    }
+
+    @Test
+    public void testClasspathChangeDisablesCache()
+    {
+        List<String> additionalClassPath = WeavingContext.getInstance().getConfiguration().getAdditionalClassPath();
+        additionalClassPath.add(CLASSPATH_CHANGE);
+
+        assertEquals(0, new CompileCache(_cacheDir).restore(_resources, _store));
+        for (String className : CLASSES)
+        {
+            assertFalse(_store.containsClass(className));
+        }
+    }
+}
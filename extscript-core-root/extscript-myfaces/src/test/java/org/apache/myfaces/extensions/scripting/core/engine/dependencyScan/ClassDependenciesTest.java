@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.engine.dependencyScan;
+
+import org.apache.myfaces.extensions.scripting.core.engine.dependencyScan.core.ClassDependencies;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class ClassDependenciesTest
+{
+    private static final String PROBE_A = "org.probes.A";
+    private static final String PROBE_B = "org.probes.B";
+    private static final String PROBE_C = "org.probes.C";
+    private static final String PROBE_D = "org.probes.D";
+
+    ClassDependencies _dependencies;
+
+    @Before
+    public void init()
+    {
+        //B -> A, C -> B, D -> A
+        _dependencies = new ClassDependencies();
+        _dependencies.addDependency(PROBE_B, PROBE_A);
+        _dependencies.addDependency(PROBE_C, PROBE_B);
+        _dependencies.addDependency(PROBE_D, PROBE_A);
+    }
+
+    @Test
+    public void testBothDirections()
+    {
+        Set<String> referrers = _dependencies.getReferringClasses(PROBE_A);
+        assertEquals(2, referrers.size());
+        assertTrue(referrers.contains(PROBE_B));
+        assertTrue(referrers.contains(PROBE_D));
+        assertTrue(_dependencies.getDependencies(PROBE_C).contains(PROBE_B));
+        assertNull(_dependencies.getDependencies(PROBE_A));
+    }
+
+    @Test
+    public void testDuplicateEdges()
+    {
+        _dependencies.addDependency(PROBE_B, PROBE_A);
+        assertEquals(2, _dependencies.getReferringClasses(PROBE_A).size());
+    }
+
+    @Test
+    public void testRemoveReferrer()
+    {
+        _dependencies.removeReferrer(PROBE_B);
+        assertFalse(_dependencies.getReferringClasses(PROBE_A).contains(PROBE_B));
+        assertNull(_dependencies.getDependencies(PROBE_B));
+        //the incoming edges stay untouched
+        assertTrue(_dependencies.getReferringClasses(PROBE_B).contains(PROBE_C));
+    }
+
+    @Test
+    public void testRemoveReferenced()
+    {
+        _dependencies.removeReferenced(PROBE_A);
+        assertNull(_dependencies.getReferringClasses(PROBE_A));
+        assertNull(_dependencies.getDependencies(PROBE_D));
+        assertFalse(_dependencies.getReferencedClasses().contains(PROBE_A));
+    }
+
+    @Test
+    public void testTransitiveReferrers()
+    {
+        Set<String> referrers = _dependencies.getTransitiveReferringClasses(Arrays.asList(PROBE_A));
+        assertEquals(3, referrers.size());
+        assertTrue(referrers.containsAll(Arrays.asList(PROBE_B, PROBE_C, PROBE_D)));
+        assertFalse(referrers.contains(PROBE_A));
+
+        //cycles must terminate
+        _dependencies.addDependency(PROBE_A, PROBE_C);
+        referrers = _dependencies.getTransitiveReferringClasses(Arrays.asList(PROBE_A));
+        assertEquals(4, referrers.size());
+    }
+
+    @Test
+    public void testGrowth()
+    {
+        for (int cnt = 0; cnt < 1000; cnt++)
+        {
+            _dependencies.addDependency("org.probes.Generated" + cnt, PROBE_C);
+        }
+        assertEquals(1000, _dependencies.getReferringClasses(PROBE_C).size());
+        assertEquals(1003, _dependencies.getTransitiveReferringClasses(Arrays.asList(PROBE_A)).size());
+    }
+}
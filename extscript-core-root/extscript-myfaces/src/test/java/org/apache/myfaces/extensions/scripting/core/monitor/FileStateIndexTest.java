@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import org.apache.myfaces.extensions.scripting.core.support.PathUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class FileStateIndexTest
+{
+    private static final String PROBE = "org.probes.Probe";
+
+    File _sourceFile;
+    FileStateIndex _index;
+
+    @Before
+    public void init() throws IOException
+    {
+        _sourceFile = File.createTempFile("Probe", ".java");
+        PathUtils.write(_sourceFile, "class Probe {}");
+        _index = new FileStateIndex();
+    }
+
+    @After
+    public void cleanup()
+    {
+        _sourceFile.delete();
+    }
+
+    @Test
+    public void testUnknownFileIsChanged()
+    {
+        _index.beginScan();
+        assertFalse(_index.isUnchanged(_sourceFile));
+        assertNull(_index.getIdentifier(_sourceFile));
+    }
+
+    @Test
+    public void testUnchangedFile()
+    {
+        _index.beginScan();
+        _index.update(_sourceFile, PROBE);
+        _index.beginScan();
+        assertTrue(_index.isUnchanged(_sourceFile));
+        assertEquals(PROBE, _index.getIdentifier(_sourceFile));
+
+        List<String> deleted = new ArrayList<String>();
+        _index.endScan(deleted);
+        assertTrue(deleted.isEmpty());
+        assertEquals(1, _index.size());
+    }
+
+    @Test
+    public void testChangedFile() throws IOException
+    {
+        _index.beginScan();
+        _index.update(_sourceFile, PROBE);
+        PathUtils.write(_sourceFile, "class Probe { int changed; }");
+        _index.beginScan();
+        assertFalse("size has changed", _index.isUnchanged(_sourceFile));
+        _index.update(_sourceFile, PROBE);
+        assertTrue(_index.isUnchanged(_sourceFile));
+    }
+
+    @Test
+    public void testUnseenFileIsDeleted()
+    {
+        _index.beginScan();
+        _index.update(_sourceFile, PROBE);
+        _index.beginScan();
+
+        List<String> deleted = new ArrayList<String>();
+        _index.endScan(deleted);
+        assertEquals(1, deleted.size());
+        assertEquals(PROBE, deleted.get(0));
+        assertEquals(0, _index.size());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        _index.beginScan();
+        _index.update(_sourceFile, PROBE);
+        assertEquals(PROBE, _index.remove(_sourceFile));
+        assertNull(_index.remove(_sourceFile));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import org.apache.myfaces.extensions.scripting.core.support.PathUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class ResourcePathCacheTest
+{
+    File _resourceRoot;
+    List<String> _resourceRoots;
+    ResourcePathCache _cache;
+
+    @Before
+    public void init() throws IOException
+    {
+        _resourceRoot = PathUtils.createTempDir("resources");
+        _resourceRoots = Arrays.asList(_resourceRoot.getAbsolutePath());
+        _cache = new ResourcePathCache();
+    }
+
+    @After
+    public void cleanup()
+    {
+        PathUtils.delete(_resourceRoot);
+    }
+
+    private File create(String path) throws IOException
+    {
+        File file = new File(_resourceRoot, path);
+        file.getParentFile().mkdirs();
+        assertTrue(file.createNewFile());
+        return file;
+    }
+
+    @Test
+    public void testResolveLayouts() throws IOException
+    {
+        File std = create("resources/lib/std.js");
+        File metaInf = create("META-INF/resources/lib/metaInf.js");
+        File root = create("lib/root.js");
+
+        assertEquals(std.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "std.js").getAbsolutePath());
+        assertEquals(metaInf.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "metaInf.js").getAbsolutePath());
+        assertEquals(root.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "root.js").getAbsolutePath());
+    }
+
+    @Test
+    public void testResolutionIsCached() throws IOException
+    {
+        File resource = create("resources/lib/style.css");
+        assertEquals(resource.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "style.css").getAbsolutePath());
+
+        //without an invalidation the deleted file still is served from the cache
+        assertTrue(resource.delete());
+        assertEquals(resource.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "style.css").getAbsolutePath());
+
+        _cache.invalidate();
+        assertNull(_cache.resolve(_resourceRoots, "lib", "style.css"));
+    }
+
+    @Test
+    public void testNegativeResultIsCached() throws IOException
+    {
+        assertNull(_cache.resolve(_resourceRoots, "lib", "late.js"));
+
+        File resource = create("resources/lib/late.js");
+        assertNull(_cache.resolve(_resourceRoots, "lib", "late.js"));
+
+        _cache.invalidate();
+        assertEquals(resource.getAbsolutePath(), _cache.resolve(_resourceRoots, "lib", "late.js").getAbsolutePath());
+    }
+}
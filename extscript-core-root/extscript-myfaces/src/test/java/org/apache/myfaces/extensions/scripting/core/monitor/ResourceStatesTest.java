@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class ResourceStatesTest
+{
+    private static final int RESOURCES = 64;
+    private static final int ROUNDS = 2000;
+
+    private ClassResource newResource(String name)
+    {
+        ClassResource resource = new ClassResource();
+        resource.setFile(new File(name + ".java"));
+        return resource;
+    }
+
+    @Test
+    public void testAttach()
+    {
+        ResourceStates states = new ResourceStates();
+        ClassResource probe = newResource("Probe");
+        probe.setTainted(true, true);
+        assertFalse(states.isTainted());
+
+        probe.setResourceStates(states);
+        assertTrue(states.isTainted());
+        assertTrue(states.getTainted().contains(probe));
+
+        probe.setTainted(false, true);
+        assertFalse(probe.isTainted());
+        assertFalse(states.isTainted());
+    }
+
+    @Test
+    public void testConcurrentTaintUntaint() throws Exception
+    {
+        final ResourceStates states = new ResourceStates();
+        final List<ClassResource> resources = new ArrayList<ClassResource>();
+        for (int cnt = 0; cnt < RESOURCES; cnt++)
+        {
+            ClassResource resource = newResource("Probe" + cnt);
+            resource.setResourceStates(states);
+            resources.add(resource);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        //the monitor taints while the request threads untaint
+        Thread tainter = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                await(start);
+                for (int round = 0; round < ROUNDS; round++)
+                {
+                    for (ClassResource resource : resources)
+                    {
+                        resource.setTainted(true, true);
+                    }
+                }
+            }
+        });
+        Thread untainter = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                await(start);
+                for (int round = 0; round < ROUNDS; round++)
+                {
+                    for (ClassResource resource : resources)
+                    {
+                        resource.setTainted(false, true);
+                    }
+                }
+            }
+        });
+        tainter.start();
+        untainter.start();
+        start.countDown();
+        tainter.join();
+        untainter.join();
+
+        int tainted = 0;
+        for (ClassResource resource : resources)
+        {
+            assertEquals(resource.isTainted(), states.getTainted().contains(resource));
+            if (resource.isTainted()) tainted++;
+        }
+        assertEquals(tainted, states.getTainted().size());
+        assertEquals(tainted > 0, states.isTainted());
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.myfaces.extensions.scripting.core.monitor;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class TaintLogTest
+{
+    private ClassResource newResource(String name)
+    {
+        ClassResource resource = new ClassResource();
+        resource.setFile(new File(name + ".java"));
+        return resource;
+    }
+
+    @Test
+    public void testSequences()
+    {
+        TaintLog log = new TaintLog(8, 0);
+        assertEquals(0, log.getLastSequence());
+        assertTrue(log.getSince(0).isEmpty());
+
+        ClassResource probe1 = newResource("Probe1");
+        ClassResource probe2 = newResource("Probe2");
+        assertEquals(1, log.add(probe1));
+        assertEquals(2, log.add(probe2));
+        assertEquals(2, log.getLastSequence());
+
+        List<ClassResource> since = log.getSince(1);
+        assertEquals(1, since.size());
+        assertSame(probe2, since.get(0));
+        assertEquals(2, log.getSince(0).size());
+        assertTrue(log.getSince(2).isEmpty());
+    }
+
+    @Test
+    public void testOverwrite()
+    {
+        TaintLog log = new TaintLog(4, 0);
+        for (int cnt = 0; cnt < 10; cnt++)
+        {
+            log.add(newResource("Probe" + cnt));
+        }
+        assertEquals(10, log.getLastSequence());
+        assertEquals(4, log.getSince(0).size());
+        assertFalse("entries 1-6 have been overwritten", log.isComplete(0));
+        assertFalse(log.isComplete(5));
+        assertTrue(log.isComplete(6));
+        assertTrue(log.isComplete(10));
+
+        List<ClassResource> last = log.getLast(2);
+        assertEquals(2, last.size());
+        assertEquals("Probe9", last.get(1).getFile().getName().replace(".java", ""));
+    }
+
+    @Test
+    public void testSinceTime() throws Exception
+    {
+        TaintLog log = new TaintLog(16, 0);
+        log.add(newResource("Probe1"));
+        log.add(newResource("Probe2"));
+        Thread.sleep(20);
+        long timestamp = System.currentTimeMillis();
+        log.add(newResource("Probe3"));
+
+        assertEquals(1, log.getSinceTime(timestamp).size());
+        assertEquals(3, log.getSinceTime(0).size());
+        assertTrue(log.getSinceTime(System.currentTimeMillis() + 1000).isEmpty());
+    }
+
+    @Test
+    public void testTimeout() throws Exception
+    {
+        TaintLog log = new TaintLog(16, 10);
+        log.add(newResource("Probe1"));
+        Thread.sleep(30);
+        assertTrue(log.getSince(0).isEmpty());
+        assertFalse(log.isComplete(0));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception
+    {
+        final TaintLog log = new TaintLog(1024, 0);
+        Thread[] writers = new Thread[4];
+        for (int cnt = 0; cnt < writers.length; cnt++)
+        {
+            writers[cnt] = new Thread()
+            {
+                public void run()
+                {
+                    for (int entry = 0; entry < 100; entry++)
+                    {
+                        log.add(newResource("Probe" + entry));
+                    }
+                }
+            };
+            writers[cnt].start();
+        }
+        for (Thread writer : writers)
+        {
+            writer.join();
+        }
+        assertEquals(400, log.getLastSequence());
+        assertEquals(400, log.getSince(0).size());
+    }
+}
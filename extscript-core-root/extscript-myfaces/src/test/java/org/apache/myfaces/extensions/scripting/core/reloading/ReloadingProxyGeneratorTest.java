@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.reloading;
+
+import org.apache.myfaces.extensions.scripting.core.api.Decorated;
+import org.apache.myfaces.extensions.scripting.core.api.ScriptingConst;
+import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.junit.Test;
+
+import javax.faces.application.NavigationHandler;
+import javax.faces.context.FacesContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class ReloadingProxyGeneratorTest
+{
+    public interface Calculator
+    {
+        int add(int a, int b);
+
+        double scale(long value, double factor);
+
+        long[] range(long from, int count);
+
+        String describe(String prefix, Object value);
+
+        Object echo(Object value);
+
+        void check(boolean valid) throws IOException;
+    }
+
+    public static class CalculatorImpl implements Calculator, Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        public int add(int a, int b)
+        {
+            return a + b;
+        }
+
+        public double scale(long value, double factor)
+        {
+            return value * factor;
+        }
+
+        public long[] range(long from, int count)
+        {
+            long[] retVal = new long[count];
+            for (int cnt = 0; cnt < count; cnt++)
+            {
+                retVal[cnt] = from + cnt;
+            }
+            return retVal;
+        }
+
+        public String describe(String prefix, Object value)
+        {
+            return prefix + value;
+        }
+
+        public Object echo(Object value)
+        {
+            return value;
+        }
+
+        public void check(boolean valid) throws IOException
+        {
+            if (!valid) throw new IOException("invalid");
+        }
+
+        @Override
+        public String toString()
+        {
+            return "calculator";
+        }
+    }
+
+    public static class RecordingNavigationHandler extends NavigationHandler
+    {
+        String _fromAction;
+        String _outcome;
+
+        @Override
+        public void handleNavigation(FacesContext context, String fromAction, String outcome)
+        {
+            if (outcome == null) throw new IllegalArgumentException("no outcome");
+            _fromAction = fromAction;
+            _outcome = outcome;
+        }
+    }
+
+    /**
+     * there are no engines in the test, hence we mark
+     * the delegate as woven in the current generation
+     */
+    private Object newProxy(Object delegate, Class<?> type)
+    {
+        MethodLevelReloadingHandler handler = new MethodLevelReloadingHandler(delegate,
+                ScriptingConst.ARTIFACT_TYPE_UNKNOWN);
+        handler._wovenGeneration = WeavingContext.getInstance().getReloadGeneration();
+        return ReloadingProxyGenerator.newProxy(type, handler);
+    }
+
+    @Test
+    public void testInterfaceProxy() throws IOException
+    {
+        Calculator proxy = (Calculator) newProxy(new CalculatorImpl(), Calculator.class);
+
+        assertFalse(proxy instanceof CalculatorImpl);
+        assertEquals(5, proxy.add(2, 3));
+        assertEquals(5.0, proxy.scale(2L, 2.5), 0.0);
+        long[] range = proxy.range(Long.MAX_VALUE - 2, 3);
+        assertEquals(3, range.length);
+        assertEquals(Long.MAX_VALUE, range[2]);
+        assertEquals("value 1", proxy.describe("value ", 1));
+        assertEquals("calculator", proxy.toString());
+        proxy.check(true);
+    }
+
+    @Test
+    public void testExceptionsPropagate()
+    {
+        Calculator proxy = (Calculator) newProxy(new CalculatorImpl(), Calculator.class);
+        try
+        {
+            proxy.check(false);
+            fail("exception expected");
+        }
+        catch (IOException e)
+        {
+            assertEquals("invalid", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDecoratedUnwraps()
+    {
+        CalculatorImpl delegate = new CalculatorImpl();
+        Calculator proxy = (Calculator) newProxy(delegate, Calculator.class);
+
+        assertTrue(proxy instanceof Decorated);
+        assertSame(delegate, ((Decorated) proxy).getDelegate());
+        assertSame(delegate, WeavingContext.getDelegateFromProxy(proxy));
+    }
+
+    @Test
+    public void testProxyArgumentsAreUnwrapped()
+    {
+        CalculatorImpl delegate = new CalculatorImpl();
+        Calculator proxy = (Calculator) newProxy(delegate, Calculator.class);
+
+        assertSame(delegate, proxy.echo(proxy));
+    }
+
+    @Test
+    public void testAbstractBaseClassProxy()
+    {
+        RecordingNavigationHandler delegate = new RecordingNavigationHandler();
+        NavigationHandler proxy = (NavigationHandler) newProxy(delegate, NavigationHandler.class);
+
+        assertFalse(proxy instanceof RecordingNavigationHandler);
+        proxy.handleNavigation(null, "#{bean.action}", "success");
+        assertEquals("#{bean.action}", delegate._fromAction);
+        assertEquals("success", delegate._outcome);
+        assertSame(delegate, ((Decorated) proxy).getDelegate());
+        try
+        {
+            proxy.handleNavigation(null, null, null);
+            fail("exception expected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertEquals("no outcome", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException
+    {
+        Calculator proxy = (Calculator) newProxy(new CalculatorImpl(), Calculator.class);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oStream = new ObjectOutputStream(bytes);
+        oStream.writeObject(proxy);
+        oStream.close();
+        Object restored = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertSame(proxy.getClass(), restored.getClass());
+        assertTrue(((Decorated) restored).getDelegate() instanceof CalculatorImpl);
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.myfaces.extensions.scripting.core.support;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
@@ -90,4 +92,51 @@ public class PathUtils {
         }
     }
 
+    /**
+     * creates an empty dir in the temp dir
+     *
+     * @param prefix the prefix of the dir name
+     * @return the newly created dir
+     * @throws IOException if the dir could not be created
+     */
+    public static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        if (!dir.mkdirs()) {
+            throw new IOException("temp dir " + dir.getAbsolutePath() + " could not be created");
+        }
+        return dir;
+    }
+
+    /**
+     * deletes a file or a dir including its content
+     *
+     * @param file the file or dir to be deleted
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * replaces the content of a file
+     *
+     * @param file    the file to be written
+     * @param content the new content
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
 }
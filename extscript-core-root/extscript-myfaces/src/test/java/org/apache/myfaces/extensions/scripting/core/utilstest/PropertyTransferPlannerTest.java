@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.extensions.scripting.core.utilstest;
+
+import org.apache.myfaces.extensions.scripting.core.reloading.PropertyTransferPlanner;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Testcase for the property transfer plans
+ * used when reloaded instances get their state back
+ *
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ */
+
+public class PropertyTransferPlannerTest {
+
+    public static class OldBean {
+        int _counter = 5;
+        String _name = "hello";
+        String _changedType = "42";
+        String _readOnly = "read only";
+
+        public int getCounter() {
+            return _counter;
+        }
+
+        public void setCounter(int counter) {
+            _counter = counter;
+        }
+
+        public String getName() {
+            return _name;
+        }
+
+        public void setName(String name) {
+            _name = name;
+        }
+
+        public String getChangedType() {
+            return _changedType;
+        }
+
+        public String getReadOnly() {
+            return _readOnly;
+        }
+    }
+
+    public static class NewBean {
+        int _counter;
+        Object _name;
+        Integer _changedType;
+
+        public int getCounter() {
+            return _counter;
+        }
+
+        public void setCounter(int counter) {
+            _counter = counter;
+        }
+
+        public Object getName() {
+            return _name;
+        }
+
+        public void setName(Object name) {
+            _name = name;
+        }
+
+        public Integer getChangedType() {
+            return _changedType;
+        }
+
+        public void setChangedType(Integer changedType) {
+            _changedType = changedType;
+        }
+    }
+
+    @Test
+    public void testCopyCompatibleProperties() {
+        NewBean target = new NewBean();
+        PropertyTransferPlanner.copyProperties(target, new OldBean());
+        assertEquals(5, target.getCounter());
+        assertEquals("hello", target.getName());
+    }
+
+    @Test
+    public void testIncompatibleTypesSkipped() {
+        NewBean target = new NewBean();
+        PropertyTransferPlanner.copyProperties(target, new OldBean());
+        assertNull(target.getChangedType());
+        assertEquals(2, PropertyTransferPlanner.getPlan(OldBean.class, NewBean.class).length);
+    }
+
+    @Test
+    public void testPlanCached() {
+        assertSame(PropertyTransferPlanner.getPlan(OldBean.class, NewBean.class),
+                PropertyTransferPlanner.getPlan(OldBean.class, NewBean.class));
+    }
+}
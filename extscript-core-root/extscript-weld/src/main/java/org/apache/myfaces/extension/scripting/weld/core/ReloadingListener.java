@@ -36,7 +36,7 @@ import java.util.logging.Logger;
  */
 public class ReloadingListener implements WeavingEventListener
 {
-    boolean _tainted = false;
+    volatile boolean _tainted = false;
     ServletContext context;
 
     Logger log = Logger.getLogger(this.getClass().getName());
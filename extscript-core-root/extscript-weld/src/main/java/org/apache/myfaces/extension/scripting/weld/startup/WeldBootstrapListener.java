@@ -23,6 +23,8 @@ import org.apache.commons.io.FileUtils;
 import org.apache.myfaces.extension.scripting.weld.core.CDIThrowAwayClassloader;
 import org.apache.myfaces.extension.scripting.weld.core.ReloadingListener;
 import org.apache.myfaces.extensions.scripting.core.api.WeavingContext;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.RefreshBeginEvent;
+import org.apache.myfaces.extensions.scripting.core.api.eventhandling.events.TaintedEvent;
 import org.apache.myfaces.extensions.scripting.jsf.startup.StartupServletContextPluginChainLoaderBase;
 
 import javax.servlet.ServletContext;
@@ -65,8 +67,12 @@ public class WeldBootstrapListener extends org.jboss.weld.environment.servlet.Li
             if (servletContext.getAttribute(RELOADING_LISTENER) == null)
             {
                 StartupServletContextPluginChainLoaderBase.startup(servletContext);
-                servletContext.setAttribute(RELOADING_LISTENER, new ReloadingListener());
-                WeavingContext.getInstance().addListener((ReloadingListener) servletContext.getAttribute(RELOADING_LISTENER));
+                ReloadingListener reloadingListener = new ReloadingListener();
+                servletContext.setAttribute(RELOADING_LISTENER, reloadingListener);
+                //the taints only set a flag, the container restart happens on the request thread,
+                //the flag has to be set before a request can see the new classes, hence synchronously
+                WeavingContext.getInstance().addListener(TaintedEvent.class, reloadingListener, false);
+                WeavingContext.getInstance().addListener(RefreshBeginEvent.class, reloadingListener, false);
                 File target = WeavingContext.getInstance().getConfiguration().getCompileTarget("/META-INF/beans.xml");
 
                 //we generate a beans.xml for weld, owb seems to be able to cope without it